@@ -1,5 +1,7 @@
 package com.example.grpcclient;
 
+import com.example.grpcclient.benchmark.LoadGenerator;
+import com.example.grpcclient.config.GrpcClientProperties;
 import com.example.grpcclient.service.GrpcClientService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
@@ -7,15 +9,19 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
+import java.util.Arrays;
+
 @SpringBootApplication
 @ConfigurationPropertiesScan("com.example.grpcclient.config")
 public class GrpcClientApplication implements CommandLineRunner {
 
     private final GrpcClientService grpcClientService;
+    private final GrpcClientProperties properties;
 
     @Autowired
-    public GrpcClientApplication(GrpcClientService grpcClientService) {
+    public GrpcClientApplication(GrpcClientService grpcClientService, GrpcClientProperties properties) {
         this.grpcClientService = grpcClientService;
+        this.properties = properties;
     }
 
     public static void main(String[] args) {
@@ -26,20 +32,39 @@ public class GrpcClientApplication implements CommandLineRunner {
             runBenchmarks();
             return;
         }
+        if (args.length > 0 && "loadtest".equalsIgnoreCase(args[0])) {
+            runLoadTest(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
-        SpringApplication.run(GrpcClientApplication.class, args);
+        // Closing the context stops exporters (e.g. the metrics HTTP server) so the JVM can exit
+        SpringApplication.run(GrpcClientApplication.class, args).close();
     }
 
     @Override
     public void run(String... args) throws Exception {
-        System.out.println("Starting bi-directional streaming gRPC client...");
+        if (!properties.runOnStartup()) {
+            // Embedded: the host application drives MultiplexedPdfClient or ReactivePdfClient itself
+            return;
+        }
+        if (properties.callMode() == GrpcClientProperties.CallMode.UNARY) {
+            System.out.println("Starting bulk unary gRPC client...");
+            grpcClientService.callUnaryBulk();
+        } else if (properties.callMode() == GrpcClientProperties.CallMode.BATCHED) {
+            System.out.println("Starting batched streaming gRPC client...");
+            grpcClientService.callBidirectionalStreaming();
+        } else {
+            System.out.println("Starting bi-directional streaming gRPC client...");
 
-        // Test both unary and bi-directional streaming
-        //grpcClientService.callUnaryMethod();
-        grpcClientService.callBidirectionalStreaming();
+            // Test both unary and bi-directional streaming
+            //grpcClientService.callUnaryMethod();
+            grpcClientService.callBidirectionalStreaming();
+        }
 
-        System.out.println("Press Enter to exit...");
-        System.in.read();
+        if (System.console() != null) {
+            System.out.println("Press Enter to exit...");
+            System.in.read();
+        }
     }
 
     private static void runBenchmarks() {
@@ -50,4 +75,13 @@ public class GrpcClientApplication implements CommandLineRunner {
             e.printStackTrace();
         }
     }
+
+    private static void runLoadTest(String[] args) {
+        try {
+            LoadGenerator.main(args);
+        } catch (Exception e) {
+            System.err.println("Error running load test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,420 @@
+package com.example.grpcclient.balancer;
+
+import com.example.grpcclient.config.GrpcClientProperties;
+import com.example.grpcclient.proto.MakePDFGrpc;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Attributes;
+import io.grpc.LoadBalancerRegistry;
+import io.grpc.ManagedChannel;
+import io.grpc.NameResolverRegistry;
+import io.grpc.Status;
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthCheckResponse;
+import io.grpc.health.v1.HealthGrpc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The fleet of MakePDF servers a client balances across: the {@code service-urls} list plus, if set,
+ * the lines of {@code endpoints-file}. Every {@code endpoints-refresh-ms} the file is re-read and every
+ * host name resolved again, so a server that moves to a new address is followed there.
+ *
+ * Every endpoint is probed every {@code health-check-interval-ms} with the standard gRPC health check
+ * over a channel of its own. A server without the health service answers {@code UNIMPLEMENTED}, which
+ * still proves it is up. An endpoint is ejected after two failed probes in a row until a probe
+ * succeeds, or for {@code ejection-time-ms} when its call latency is more than
+ * {@code slow-ejection-factor} times the fleet median. If every endpoint would be ejected, none is.
+ *
+ * Call latency is measured by the balancer on real MakePDF calls, from each request message to its
+ * reply, since a server saturated generating PDFs still answers health checks at once. Ejections are
+ * re-evaluated after every probe.
+ *
+ * Channels reach the fleet through the {@value #SCHEME} name resolver, which publishes the endpoints
+ * not ejected, and a load-balancing policy chosen by {@link Policy}. Both are registered globally by
+ * {@link #start()}, so there is one fleet per JVM.
+ */
+public class FleetEndpoints implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetEndpoints.class);
+
+    public static final String SCHEME = "makepdf-fleet";
+    static final Attributes.Key<FleetEndpoints> ATTRIBUTE = Attributes.Key.create("makepdf.fleet");
+
+    private static final int FAILURES_TO_EJECT = 2;
+    private static final double LATENCY_SMOOTHING = 0.05;
+
+    public enum Policy {
+        /** gRPC's own round robin over the endpoints not ejected. */
+        ROUND_ROBIN,
+        /** The endpoint with the fewest calls open, of two picked at random. */
+        LEAST_OUTSTANDING,
+        /** Like {@code LEAST_OUTSTANDING}, with open calls weighted by the endpoint's call latency. */
+        LATENCY_WEIGHTED
+    }
+
+    public record Endpoint(String host, int port, boolean tls) {
+
+        /**
+         * Parses a URL in the form of {@code service-url}, e.g. {@code https://pdf-3.local:5555}.
+         */
+        public static Endpoint parse(String url) {
+            URI uri = URI.create(url.trim());
+            if (uri.getHost() == null) {
+                throw new IllegalArgumentException("Endpoint must be a URL such as https://host:port: " + url);
+            }
+            boolean tls = "https".equals(uri.getScheme());
+            return new Endpoint(uri.getHost(), uri.getPort() != -1 ? uri.getPort() : (tls ? 443 : 80), tls);
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + port;
+        }
+    }
+
+    /**
+     * Probe state of one endpoint.
+     */
+    private static final class Health {
+        volatile InetSocketAddress address;
+        final ManagedChannel probe;
+        int consecutiveFailures;
+        // Smoothed MakePDF call latency; 0 until measured, or again after a slow ejection ends
+        private double latencyNanos;
+        boolean slow;
+        long slowUntilNanos;
+        volatile boolean ejected;
+
+        Health(InetSocketAddress address, ManagedChannel probe) {
+            this.address = address;
+            this.probe = probe;
+        }
+
+        synchronized void sample(long nanos) {
+            latencyNanos = latencyNanos == 0 ? nanos : latencyNanos + LATENCY_SMOOTHING * (nanos - latencyNanos);
+        }
+
+        synchronized double latencyNanos() {
+            return latencyNanos;
+        }
+
+        synchronized void forgetLatency() {
+            latencyNanos = 0;
+        }
+    }
+
+    private final List<Endpoint> configured;
+    private final Path endpointsFile;
+    private final boolean tls;
+    private final Policy policy;
+    private final long refreshMs;
+    private final long healthCheckIntervalMs;
+    private final long healthCheckTimeoutMs;
+    private final double slowEjectionFactor;
+    private final long ejectionTimeNanos;
+    private final Function<Endpoint, ManagedChannel> probeChannels;
+
+    // Changed under this; read by the balancers without locking
+    private final Map<Endpoint, Health> health = new ConcurrentHashMap<>();
+    private final Map<InetSocketAddress, Health> byAddress = new ConcurrentHashMap<>();
+    private volatile List<InetSocketAddress> published = List.of();
+    private volatile double medianLatencyNanos;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private FleetNameResolver.Provider resolverProvider;
+    private LeastLoadedBalancer.Provider balancerProvider;
+
+    public FleetEndpoints(GrpcClientProperties properties, Function<Endpoint, ManagedChannel> probeChannels) {
+        this.configured = properties.serviceUrls().stream().map(Endpoint::parse).toList();
+        this.endpointsFile = properties.endpointsFile().isEmpty() ? null : Paths.get(properties.endpointsFile());
+        this.policy = properties.loadBalancing();
+        this.refreshMs = properties.endpointsRefreshMs();
+        this.healthCheckIntervalMs = properties.healthCheckIntervalMs();
+        this.healthCheckTimeoutMs = properties.healthCheckTimeoutMs();
+        this.slowEjectionFactor = properties.slowEjectionFactor();
+        this.ejectionTimeNanos = TimeUnit.MILLISECONDS.toNanos(properties.ejectionTimeMs());
+        this.probeChannels = probeChannels;
+
+        List<Endpoint> initial = enabled() ? readEndpoints() : List.of();
+        if (enabled() && initial.isEmpty()) {
+            throw new IllegalArgumentException("No endpoints in service-urls or " + endpointsFile);
+        }
+        this.tls = !initial.isEmpty() && initial.get(0).tls();
+        for (Endpoint endpoint : initial) {
+            if (endpoint.tls() != tls) {
+                throw new IllegalArgumentException("Endpoints must all use http or all use https: " + endpoint);
+            }
+        }
+        update(resolve(initial));
+    }
+
+    /**
+     * True if more than one endpoint can be configured, i.e. {@code service-urls} or
+     * {@code endpoints-file} is set; otherwise the client uses {@code service-url} alone.
+     */
+    public boolean enabled() {
+        return !configured.isEmpty() || endpointsFile != null;
+    }
+
+    public boolean tls() { return tls; }
+    public Policy policy() { return policy; }
+
+    /**
+     * The channel target that reaches the fleet.
+     */
+    public String target() {
+        return SCHEME + ":///fleet";
+    }
+
+    /**
+     * Name of the gRPC load-balancing policy for {@link #policy()}.
+     */
+    public String policyName() {
+        return policy == Policy.ROUND_ROBIN ? "round_robin" : LeastLoadedBalancer.POLICY_NAME;
+    }
+
+    /**
+     * Registers the resolver and balancer and starts refreshing and probing.
+     */
+    public synchronized void start() {
+        if (!enabled() || scheduler != null) {
+            return;
+        }
+        resolverProvider = new FleetNameResolver.Provider(this);
+        balancerProvider = new LeastLoadedBalancer.Provider();
+        NameResolverRegistry.getDefaultRegistry().register(resolverProvider);
+        LoadBalancerRegistry.getDefaultRegistry().register(balancerProvider);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fleet-endpoints");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+        if (healthCheckIntervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::probeAll, 0, healthCheckIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        logger.info("Balancing across {} endpoints with {}", health.size(), policy);
+    }
+
+    /**
+     * Addresses currently offered to the balancer: every endpoint not ejected.
+     */
+    List<InetSocketAddress> addresses() {
+        return published;
+    }
+
+    /**
+     * Records the time a MakePDF call to {@code address} took to answer one request.
+     */
+    void recordLatency(SocketAddress address, long nanos) {
+        Health state = byAddress.get(address);
+        if (state != null) {
+            state.sample(nanos);
+        }
+    }
+
+    /**
+     * Smoothed call latency of an endpoint; the fleet median while it has none of its own, or 0
+     * before any endpoint has answered a call.
+     */
+    double latencyNanos(SocketAddress address) {
+        Health state = byAddress.get(address);
+        double latency = state != null ? state.latencyNanos() : 0;
+        return latency > 0 ? latency : medianLatencyNanos;
+    }
+
+    /**
+     * Authority for calls to the fleet: the first endpoint's.
+     */
+    String authority() {
+        return health.keySet().stream().findFirst().map(Endpoint::toString).orElse("fleet");
+    }
+
+    void addListener(Runnable listener) { listeners.add(listener); }
+    void removeListener(Runnable listener) { listeners.remove(listener); }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            NameResolverRegistry.getDefaultRegistry().deregister(resolverProvider);
+            LoadBalancerRegistry.getDefaultRegistry().deregister(balancerProvider);
+        }
+        health.values().forEach(state -> state.probe.shutdownNow());
+        health.clear();
+        byAddress.clear();
+    }
+
+    private List<Endpoint> readEndpoints() {
+        Set<Endpoint> endpoints = new LinkedHashSet<>(configured);
+        if (endpointsFile != null) {
+            try {
+                for (String line : Files.readAllLines(endpointsFile)) {
+                    String entry = line.strip();
+                    if (entry.isEmpty() || entry.startsWith("#")) {
+                        continue;
+                    }
+                    try {
+                        endpoints.add(Endpoint.parse(entry));
+                    } catch (IllegalArgumentException e) {
+                        logger.warn("Skipping endpoint {} in {}: {}", entry, endpointsFile, e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Unable to read endpoints from {}; keeping the current list", endpointsFile, e);
+                return List.copyOf(health.keySet());
+            }
+        }
+        return List.copyOf(endpoints);
+    }
+
+    private void refresh() {
+        List<Endpoint> endpoints = new ArrayList<>();
+        for (Endpoint endpoint : readEndpoints()) {
+            if (endpoint.tls() != tls) {
+                logger.warn("Skipping endpoint {}: the fleet uses {}", endpoint, tls ? "https" : "http");
+            } else {
+                endpoints.add(endpoint);
+            }
+        }
+        if (!endpoints.isEmpty()) {
+            // Resolved outside the lock, which probe callbacks on transport threads wait for
+            update(resolve(endpoints));
+        }
+    }
+
+    private static Map<Endpoint, InetSocketAddress> resolve(List<Endpoint> endpoints) {
+        Map<Endpoint, InetSocketAddress> resolved = new LinkedHashMap<>();
+        for (Endpoint endpoint : endpoints) {
+            resolved.put(endpoint, new InetSocketAddress(endpoint.host(), endpoint.port()));
+        }
+        return resolved;
+    }
+
+    private synchronized void update(Map<Endpoint, InetSocketAddress> endpoints) {
+        health.entrySet().removeIf(entry -> {
+            if (endpoints.containsKey(entry.getKey())) {
+                return false;
+            }
+            logger.info("Endpoint {} removed from the fleet", entry.getKey());
+            entry.getValue().probe.shutdownNow();
+            byAddress.remove(entry.getValue().address);
+            return true;
+        });
+        endpoints.forEach((endpoint, address) -> {
+            Health state = health.get(endpoint);
+            if (state == null) {
+                Health added = new Health(address, probeChannels.apply(endpoint));
+                health.put(endpoint, added);
+                byAddress.put(address, added);
+            } else if (!address.isUnresolved() && !address.equals(state.address)) {
+                // A failed lookup keeps the last known address rather than dropping the endpoint
+                logger.info("Endpoint {} moved from {} to {}", endpoint, state.address.getAddress(), address.getAddress());
+                byAddress.remove(state.address);
+                state.address = address;
+                byAddress.put(address, state);
+            }
+        });
+        publish();
+    }
+
+    private void probeAll() {
+        var request = HealthCheckRequest.newBuilder().setService(MakePDFGrpc.SERVICE_NAME).build();
+        health.forEach((endpoint, state) -> {
+            var check = HealthGrpc.newFutureStub(state.probe)
+                    .withDeadlineAfter(healthCheckTimeoutMs, TimeUnit.MILLISECONDS)
+                    .check(request);
+            Futures.addCallback(check, new FutureCallback<>() {
+                @Override
+                public void onSuccess(HealthCheckResponse response) {
+                    probed(endpoint, state, response.getStatus() == HealthCheckResponse.ServingStatus.SERVING);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    Status.Code code = Status.fromThrowable(t).getCode();
+                    // No health service, or no status for this service: the server still answered
+                    boolean answered = code == Status.Code.UNIMPLEMENTED || code == Status.Code.NOT_FOUND;
+                    probed(endpoint, state, answered);
+                }
+            }, MoreExecutors.directExecutor());
+        });
+    }
+
+    private synchronized void probed(Endpoint endpoint, Health state, boolean healthy) {
+        if (health.get(endpoint) != state) {
+            return; // Removed while the probe was out
+        }
+        if (healthy) {
+            state.consecutiveFailures = 0;
+        } else {
+            state.consecutiveFailures++;
+        }
+        publish();
+    }
+
+    /**
+     * Re-evaluates ejections and tells the resolvers if the set of endpoints in service changed.
+     */
+    private synchronized void publish() {
+        long now = System.nanoTime();
+        double[] latencies = health.values().stream().mapToDouble(Health::latencyNanos).filter(latency -> latency > 0)
+                .sorted().toArray();
+        medianLatencyNanos = latencies.length == 0 ? 0 : latencies[latencies.length / 2];
+        // With fewer than three measured, too few to call one of them an outlier
+        double median = latencies.length < 3 ? 0 : medianLatencyNanos;
+        for (Map.Entry<Endpoint, Health> entry : health.entrySet()) {
+            Health state = entry.getValue();
+            double latency = state.latencyNanos();
+            if (slowEjectionFactor > 0 && median > 0 && latency > slowEjectionFactor * median && !state.slow) {
+                state.slow = true;
+                state.slowUntilNanos = now + ejectionTimeNanos;
+            } else if (state.slow && state.slowUntilNanos - now <= 0) {
+                state.slow = false;
+                // An ejected endpoint got no calls, so its latency is stale; measure it afresh
+                state.forgetLatency();
+            }
+            boolean ejected = state.consecutiveFailures >= FAILURES_TO_EJECT || state.slow;
+            if (ejected != state.ejected) {
+                state.ejected = ejected;
+                logger.warn("Endpoint {} {} (call latency {} ms, {} failed probes in a row)", entry.getKey(),
+                        ejected ? "ejected" : "back in service", Math.round(latency / 1_000_000),
+                        state.consecutiveFailures);
+            }
+        }
+
+        List<InetSocketAddress> inService = health.values().stream()
+                .filter(state -> !state.ejected).map(state -> state.address).toList();
+        if (inService.isEmpty()) {
+            // Better a slow or flaky endpoint than none at all
+            inService = health.values().stream().map(state -> state.address).toList();
+        }
+        if (!inService.equals(published)) {
+            published = inService;
+            listeners.forEach(Runnable::run);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.grpcclient.balancer;
+
+import io.grpc.Attributes;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+import io.grpc.Status;
+import io.grpc.SynchronizationContext;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Resolves {@code makepdf-fleet:///fleet} to the {@link FleetEndpoints} currently in service, and
+ * resolves again whenever that set changes. The fleet travels along in the result's attributes for
+ * the {@link LeastLoadedBalancer}.
+ */
+final class FleetNameResolver extends NameResolver {
+
+    private final FleetEndpoints fleet;
+    private final SynchronizationContext syncContext;
+    private final Runnable onFleetChanged = this::refresh;
+    private Listener2 listener;
+
+    private FleetNameResolver(FleetEndpoints fleet, SynchronizationContext syncContext) {
+        this.fleet = fleet;
+        this.syncContext = syncContext;
+    }
+
+    @Override
+    public String getServiceAuthority() {
+        return fleet.authority();
+    }
+
+    @Override
+    public void start(Listener2 listener) {
+        this.listener = listener;
+        fleet.addListener(onFleetChanged);
+        resolve();
+    }
+
+    @Override
+    public void refresh() {
+        syncContext.execute(this::resolve);
+    }
+
+    @Override
+    public void shutdown() {
+        fleet.removeListener(onFleetChanged);
+        listener = null;
+    }
+
+    private void resolve() {
+        if (listener == null) {
+            return;
+        }
+        List<EquivalentAddressGroup> groups = fleet.addresses().stream().map(EquivalentAddressGroup::new).toList();
+        if (groups.isEmpty()) {
+            listener.onError(Status.UNAVAILABLE.withDescription("No MakePDF endpoints configured"));
+            return;
+        }
+        listener.onResult(ResolutionResult.newBuilder()
+                .setAddresses(groups)
+                .setAttributes(Attributes.newBuilder().set(FleetEndpoints.ATTRIBUTE, fleet).build())
+                .build());
+    }
+
+    static final class Provider extends NameResolverProvider {
+
+        private final FleetEndpoints fleet;
+
+        Provider(FleetEndpoints fleet) {
+            this.fleet = fleet;
+        }
+
+        @Override
+        public NameResolver newNameResolver(URI targetUri, Args args) {
+            if (!FleetEndpoints.SCHEME.equals(targetUri.getScheme())) {
+                return null;
+            }
+            return new FleetNameResolver(fleet, args.getSynchronizationContext());
+        }
+
+        @Override
+        public String getDefaultScheme() {
+            return FleetEndpoints.SCHEME;
+        }
+
+        @Override
+        protected boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        protected int priority() {
+            return 5;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.grpcclient.balancer;
+
+import io.grpc.ClientStreamTracer;
+import io.grpc.ConnectivityState;
+import io.grpc.ConnectivityStateInfo;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.LoadBalancer;
+import io.grpc.LoadBalancerProvider;
+import io.grpc.Metadata;
+import io.grpc.Status;
+
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load-balancing policy that sends each call to the less loaded of two endpoints picked at random,
+ * which avoids the herd behaviour of always picking the single least loaded one.
+ *
+ * Load is the number of calls open on the endpoint, counted by a stream tracer. The same tracer times
+ * each request message to its reply (oldest unanswered first, as a stream's replies mostly come
+ * back in order) and reports it to {@link FleetEndpoints}, which smooths it for slow-endpoint
+ * ejection. With {@link FleetEndpoints.Policy#LATENCY_WEIGHTED} the open calls are multiplied by that
+ * latency, so a slower server gets proportionally fewer calls. A StreamPDFs call stays on the
+ * endpoint it was opened on, so streaming spreads per stream, not per row.
+ */
+final class LeastLoadedBalancer extends LoadBalancer {
+
+    static final String POLICY_NAME = "makepdf_least_loaded";
+
+    private final Helper helper;
+    private final Map<SocketAddress, Backend> backends = new HashMap<>();
+    private FleetEndpoints fleet;
+
+    /**
+     * A connection to one endpoint and the calls open on it.
+     */
+    private static final class Backend {
+        final SocketAddress address;
+        final Subchannel subchannel;
+        final AtomicInteger openCalls = new AtomicInteger();
+        final ClientStreamTracer.Factory tracer;
+        ConnectivityState state = ConnectivityState.IDLE;
+
+        Backend(SocketAddress address, Subchannel subchannel, FleetEndpoints fleet) {
+            this.address = address;
+            this.subchannel = subchannel;
+            this.tracer = new ClientStreamTracer.Factory() {
+                @Override
+                public ClientStreamTracer newClientStreamTracer(ClientStreamTracer.StreamInfo info, Metadata headers) {
+                    openCalls.incrementAndGet();
+                    return new ClientStreamTracer() {
+                        // Send times of the request messages not answered yet; guarded by this
+                        private final ArrayDeque<Long> unanswered = new ArrayDeque<>();
+
+                        @Override
+                        public synchronized void outboundMessage(int seqNo) {
+                            unanswered.addLast(System.nanoTime());
+                        }
+
+                        @Override
+                        public void inboundMessage(int seqNo) {
+                            Long sentAt;
+                            synchronized (this) {
+                                sentAt = unanswered.pollFirst();
+                            }
+                            if (sentAt != null && fleet != null) {
+                                fleet.recordLatency(address, System.nanoTime() - sentAt);
+                            }
+                        }
+
+                        @Override
+                        public void streamClosed(Status status) {
+                            openCalls.decrementAndGet();
+                            Long oldest;
+                            synchronized (this) {
+                                oldest = unanswered.peekFirst();
+                            }
+                            if (oldest != null && fleet != null && status.getCode() == Status.Code.DEADLINE_EXCEEDED) {
+                                // Timed out unanswered: it took at least this long
+                                fleet.recordLatency(address, System.nanoTime() - oldest);
+                            }
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    private LeastLoadedBalancer(Helper helper) {
+        this.helper = helper;
+    }
+
+    @Override
+    public Status acceptResolvedAddresses(ResolvedAddresses resolvedAddresses) {
+        List<EquivalentAddressGroup> groups = resolvedAddresses.getAddresses();
+        if (groups.isEmpty()) {
+            Status empty = Status.UNAVAILABLE.withDescription("Resolver returned no MakePDF endpoints");
+            handleNameResolutionError(empty);
+            return empty;
+        }
+        fleet = resolvedAddresses.getAttributes().get(FleetEndpoints.ATTRIBUTE);
+
+        Set<SocketAddress> wanted = new HashSet<>();
+        for (EquivalentAddressGroup group : groups) {
+            SocketAddress address = group.getAddresses().get(0);
+            wanted.add(address);
+            if (!backends.containsKey(address)) {
+                Subchannel subchannel = helper.createSubchannel(CreateSubchannelArgs.newBuilder()
+                        .setAddresses(group)
+                        .build());
+                Backend backend = new Backend(address, subchannel, fleet);
+                backends.put(address, backend);
+                subchannel.start(state -> stateChanged(backend, state));
+                subchannel.requestConnection();
+            }
+        }
+        // Ejected or removed endpoints; calls already open on them finish normally
+        backends.entrySet().removeIf(entry -> {
+            if (wanted.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().subchannel.shutdown();
+            return true;
+        });
+        updatePicker();
+        return Status.OK;
+    }
+
+    @Override
+    public void handleNameResolutionError(Status error) {
+        if (backends.values().stream().noneMatch(backend -> backend.state == ConnectivityState.READY)) {
+            helper.updateBalancingState(ConnectivityState.TRANSIENT_FAILURE, new Fixed(PickResult.withError(error)));
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        backends.values().forEach(backend -> backend.subchannel.shutdown());
+        backends.clear();
+    }
+
+    private void stateChanged(Backend backend, ConnectivityStateInfo info) {
+        if (backends.get(backend.address) != backend) {
+            return; // Already shut down
+        }
+        backend.state = info.getState();
+        if (info.getState() == ConnectivityState.IDLE) {
+            // Keep every endpoint connected, so picks never wait for a handshake
+            backend.subchannel.requestConnection();
+        }
+        updatePicker();
+    }
+
+    private void updatePicker() {
+        List<Backend> ready = backends.values().stream()
+                .filter(backend -> backend.state == ConnectivityState.READY).toList();
+        if (!ready.isEmpty()) {
+            helper.updateBalancingState(ConnectivityState.READY, new Picker(ready, fleet));
+        } else if (backends.values().stream().anyMatch(backend -> backend.state != ConnectivityState.TRANSIENT_FAILURE)) {
+            helper.updateBalancingState(ConnectivityState.CONNECTING, new Fixed(PickResult.withNoResult()));
+        } else {
+            helper.updateBalancingState(ConnectivityState.TRANSIENT_FAILURE, new Fixed(
+                    PickResult.withError(Status.UNAVAILABLE.withDescription("No MakePDF endpoint is reachable"))));
+        }
+    }
+
+    private static final class Fixed extends SubchannelPicker {
+
+        private final PickResult result;
+
+        Fixed(PickResult result) {
+            this.result = result;
+        }
+
+        @Override
+        public PickResult pickSubchannel(PickSubchannelArgs args) {
+            return result;
+        }
+    }
+
+    private static final class Picker extends SubchannelPicker {
+
+        private final List<Backend> ready;
+        private final FleetEndpoints latencies;
+
+        Picker(List<Backend> ready, FleetEndpoints fleet) {
+            this.ready = ready;
+            this.latencies = fleet != null && fleet.policy() == FleetEndpoints.Policy.LATENCY_WEIGHTED ? fleet : null;
+        }
+
+        @Override
+        public PickResult pickSubchannel(PickSubchannelArgs args) {
+            Backend picked = ready.get(0);
+            if (ready.size() > 1) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int first = random.nextInt(ready.size());
+                int second = random.nextInt(ready.size() - 1);
+                if (second >= first) {
+                    second++;
+                }
+                Backend a = ready.get(first);
+                Backend b = ready.get(second);
+                picked = load(a) <= load(b) ? a : b;
+            }
+            return PickResult.withSubchannel(picked.subchannel, picked.tracer);
+        }
+
+        private double load(Backend backend) {
+            double calls = backend.openCalls.get();
+            if (latencies == null) {
+                return calls;
+            }
+            double latency = latencies.latencyNanos(backend.address);
+            // The +1 lets the latency decide between idle endpoints
+            return (calls + 1) * Math.max(latency, 1);
+        }
+    }
+
+    static final class Provider extends LoadBalancerProvider {
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public int getPriority() {
+            return 5;
+        }
+
+        @Override
+        public String getPolicyName() {
+            return POLICY_NAME;
+        }
+
+        @Override
+        public LoadBalancer newLoadBalancer(Helper helper) {
+            return new LeastLoadedBalancer(helper);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.grpcclient.benchmark;
+
+import com.example.grpcclient.compression.MessageCompression;
+import io.grpc.Codec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the message codecs on a PDF-like payload: repeated page templates with a little variable
+ * text, plus an incompressible block standing in for embedded images and fonts. Each benchmark is
+ * single-threaded and CPU-bound, so bytes/s is the inverse of CPU cost; run with {@code -prof gc}
+ * to compare allocation too. The compression ratio is printed once per trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class CompressionBenchmarks {
+
+    // Share of the payload that is already-compressed binary data
+    private static final double BINARY_SHARE = 0.15;
+
+    @Param({"gzip", "zstd", "lz4"})
+    public String codecName;
+
+    @Param({"16384", "262144", "4194304"})
+    public int payloadSize;
+
+    private Codec codec;
+    private byte[] payload;
+    private byte[] compressed;
+    private byte[] readBuffer;
+    private ByteArrayOutputStream compressedOut;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        codec = MessageCompression.codec(codecName);
+        payload = pdfLikePayload(payloadSize);
+        compressedOut = new ByteArrayOutputStream(payloadSize);
+        compressed = compress();
+        readBuffer = new byte[64 * 1024];
+        System.out.printf("%n%s on %,d bytes: %,d compressed (ratio %.2f)%n",
+                codecName, payloadSize, compressed.length, (double) payloadSize / compressed.length);
+    }
+
+    @Benchmark
+    public byte[] compressMessage() throws IOException {
+        return compress();
+    }
+
+    @Benchmark
+    public void decompressMessage(Blackhole blackhole) throws IOException {
+        try (InputStream in = codec.decompress(new ByteArrayInputStream(compressed))) {
+            int read;
+            while ((read = in.read(readBuffer)) != -1) {
+                blackhole.consume(read);
+            }
+        }
+    }
+
+    private byte[] compress() throws IOException {
+        compressedOut.reset();
+        try (OutputStream out = codec.compress(compressedOut)) {
+            out.write(payload);
+        }
+        return compressedOut.toByteArray();
+    }
+
+    static byte[] pdfLikePayload(int size) {
+        Random random = new Random(42);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        out.writeBytes("%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII));
+
+        byte[] binary = new byte[(int) (size * BINARY_SHARE)];
+        random.nextBytes(binary);
+        int textLimit = size - binary.length;
+
+        for (int page = 1; out.size() < textLimit; page++) {
+            String object = String.format("""
+                    %d 0 obj
+                    << /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] /Resources << /Font << /F1 5 0 R >> >> >>
+                    stream
+                    BT /F1 12 Tf 72 720 Td (Certificate of Completion) Tj ET
+                    BT /F1 10 Tf 72 690 Td (Awarded to %s %s) Tj ET
+                    BT /F1 10 Tf 72 670 Td (Reference %08d) Tj ET
+                    0.5 w 72 650 m 540 650 l S
+                    endstream
+                    endobj
+                    """, page, "First" + random.nextInt(10_000), "Last" + random.nextInt(10_000), random.nextInt(100_000_000));
+            out.writeBytes(object.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        byte[] pdf = new byte[size];
+        byte[] text = out.toByteArray();
+        System.arraycopy(text, 0, pdf, 0, Math.min(textLimit, text.length));
+        System.arraycopy(binary, 0, pdf, textLimit, binary.length);
+        return pdf;
+    }
+}
@@ -1,18 +1,31 @@
 package com.example.grpcclient.benchmark;
 
-import com.example.grpcclient.config.GrpcClientProperties;
 import com.example.grpcclient.proto.GeneratePDFReply;
 import com.example.grpcclient.proto.GeneratePDFRequest;
 import com.example.grpcclient.proto.MakePDFGrpc;
 import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.GrpcSslContexts;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import io.grpc.stub.StreamObserver;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
+import javax.net.ssl.SSLException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Bare-stub call benchmarks. By default they run against an in-process {@link MakePdfStandIn}, so
+ * they need no server or network; set {@code -Dgrpc.benchmark.url=http://host:port} (or https) to
+ * measure a live server instead, in which case {@code payloadSize} is up to that server.
+ */
 @BenchmarkMode(Mode.Throughput)
 @OutputTimeUnit(TimeUnit.SECONDS)
 @State(Scope.Benchmark)
@@ -21,44 +34,119 @@ import java.util.concurrent.TimeUnit;
 @Fork(1)
 public class GrpcBenchmarks {
 
+    // Share of unary calls in the mixed workload
+    private static final double MIXED_UNARY_SHARE = 0.7;
+    private static final int MIXED_STREAM_BATCH = 10;
+
     @State(Scope.Benchmark)
     public static class GrpcState {
-        ManagedChannel channel;
-        MakePDFGrpc.MakePDFBlockingStub blockingStub;
-        MakePDFGrpc.MakePDFStub asyncStub;
+
+        @Param({"16384", "262144"})
+        public int payloadSize;
+
+        @Param({"100"})
+        public int streamBatch;
+
+        @Param({"1", "4"})
+        public int channelCount;
+
+        @Param({"direct", "virtual"})
+        public String executor;
+
+        @Param({"0"})
+        public long serviceTimeMicros;
+
+        MakePdfStandIn standIn;
+        ExecutorService callbackExecutor;
+        List<ManagedChannel> channels;
+        List<MakePDFGrpc.MakePDFBlockingStub> blockingStubs;
+        List<MakePDFGrpc.MakePDFStub> asyncStubs;
 
         @Setup(Level.Trial)
-        public void setup() {
-            // Configure for benchmark (use properties or defaults)
-            String serviceUrl = System.getProperty("grpc.benchmark.url", "https://localhost:5555");
-            
-            channel = ManagedChannelBuilder
-                    .forTarget(serviceUrl)
-                    .usePlaintext() // For benchmarking, use plaintext for simplicity
-                    .build();
-            
-            blockingStub = MakePDFGrpc.newBlockingStub(channel);
-            asyncStub = MakePDFGrpc.newStub(channel);
+        public void setup() throws Exception {
+            callbackExecutor = MakePdfStandIn.executor(executor);
+            String serviceUrl = System.getProperty("grpc.benchmark.url");
+            if (serviceUrl == null || serviceUrl.isBlank()) {
+                standIn = new MakePdfStandIn(payloadSize, serviceTimeMicros, callbackExecutor);
+            }
+
+            channels = new ArrayList<>();
+            for (int i = 0; i < channelCount; i++) {
+                channels.add(standIn != null ? standIn.newChannel(callbackExecutor) : liveChannel(serviceUrl, callbackExecutor));
+            }
+            blockingStubs = channels.stream().map(MakePDFGrpc::newBlockingStub).toList();
+            asyncStubs = channels.stream().map(MakePDFGrpc::newStub).toList();
         }
 
         @TearDown(Level.Trial)
         public void teardown() throws InterruptedException {
-            if (channel != null) {
+            for (ManagedChannel channel : channels) {
                 channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
             }
+            if (standIn != null) {
+                standIn.close();
+            }
+            if (callbackExecutor != null) {
+                callbackExecutor.shutdownNow();
+            }
         }
     }
 
+    /**
+     * Per-thread call sequence: picks the channel for each call and, for the mixed workload, whether it
+     * is unary. Drawn from a seeded generator so every run measures the same sequence.
+     */
+    @State(Scope.Thread)
+    public static class CallSequence {
+        private final SplittableRandom random = new SplittableRandom(42);
+        private boolean[] unary;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            unary = new boolean[4096];
+            for (int i = 0; i < unary.length; i++) {
+                unary[i] = random.nextDouble() < MIXED_UNARY_SHARE;
+            }
+        }
+
+        int nextIndex() {
+            next = (next + 1) & (unary.length - 1);
+            return next;
+        }
+    }
+
+    /**
+     * Opens a Netty channel to a live server at an {@code http} or {@code https} URL, trusting any
+     * certificate. Callbacks run on {@code executor}, or on the transport thread when it is null.
+     */
+    static ManagedChannel liveChannel(String serviceUrl, Executor executor) throws SSLException {
+        URI uri = URI.create(serviceUrl);
+        boolean isHttps = "https".equals(uri.getScheme());
+        NettyChannelBuilder builder = NettyChannelBuilder
+                .forAddress(uri.getHost(), uri.getPort() != -1 ? uri.getPort() : (isHttps ? 443 : 80))
+                .maxInboundMessageSize(32 * 1024 * 1024);
+        if (isHttps) {
+            builder.sslContext(GrpcSslContexts.forClient()
+                    .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                    .build());
+        } else {
+            builder.usePlaintext();
+        }
+        if (executor != null) {
+            builder.executor(executor);
+        } else {
+            builder.directExecutor();
+        }
+        return builder.build();
+    }
+
     @Benchmark
     @Group("unary")
-    public void benchmarkUnaryCall(GrpcState state, Blackhole blackhole) {
-        var request = GeneratePDFRequest.newBuilder()
-                .setFirstName("Benchmark")
-                .setLastName("User")
-                .build();
-
+    public void benchmarkUnaryCall(GrpcState state, CallSequence sequence, Blackhole blackhole) {
+        int index = sequence.nextIndex();
         try {
-            GeneratePDFReply response = state.blockingStub.generatePDF(request);
+            GeneratePDFReply response = state.blockingStubs.get(index % state.channelCount).generatePDF(request("Benchmark", index));
             blackhole.consume(response);
         } catch (Exception e) {
             // Consume the exception to prevent JVM optimizations
@@ -66,22 +154,35 @@ public class GrpcBenchmarks {
         }
     }
 
+    /**
+     * One stream of {@code streamBatch} requests per invocation; divide by the batch size for requests/s.
+     */
     @Benchmark
     @Group("streaming")
-    @OperationsPerInvocation(100) // Process 100 requests per invocation
-    public void benchmarkStreamingCall(GrpcState state, Blackhole blackhole) throws InterruptedException {
+    public void benchmarkStreamingCall(GrpcState state, CallSequence sequence, Blackhole blackhole) throws InterruptedException {
+        stream(state.asyncStubs.get(sequence.nextIndex() % state.channelCount), state.streamBatch, "Benchmark", blackhole);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    public void benchmarkMixedCalls(GrpcState state, CallSequence sequence, Blackhole blackhole) throws InterruptedException {
+        int index = sequence.nextIndex();
+        if (sequence.unary[index]) {
+            benchmarkUnaryCall(state, sequence, blackhole);
+        } else {
+            // Smaller streaming batch for mixed workload
+            stream(state.asyncStubs.get(index % state.channelCount), MIXED_STREAM_BATCH, "Mixed", blackhole);
+        }
+    }
+
+    static void stream(MakePDFGrpc.MakePDFStub stub, int requestCount, String firstName, Blackhole blackhole)
+            throws InterruptedException {
         CountDownLatch latch = new CountDownLatch(1);
-        int requestCount = 100;
-        
+
         var responseObserver = new StreamObserver<GeneratePDFReply>() {
-            private int received = 0;
-            
             @Override
             public void onNext(GeneratePDFReply reply) {
                 blackhole.consume(reply);
-                if (++received == requestCount) {
-                    latch.countDown();
-                }
             }
 
             @Override
@@ -96,18 +197,13 @@ public class GrpcBenchmarks {
             }
         };
 
-        var requestObserver = state.asyncStub.streamPDFs(responseObserver);
-
+        var requestObserver = stub.streamPDFs(responseObserver);
         try {
             for (int i = 0; i < requestCount; i++) {
-                var request = GeneratePDFRequest.newBuilder()
-                        .setFirstName("Benchmark" + i)
-                        .setLastName("User" + i)
-                        .build();
-                requestObserver.onNext(request);
+                requestObserver.onNext(request(firstName, i));
             }
             requestObserver.onCompleted();
-            
+
             // Wait for all responses
             latch.await(30, TimeUnit.SECONDS);
         } catch (Exception e) {
@@ -115,55 +211,10 @@ public class GrpcBenchmarks {
         }
     }
 
-    @Benchmark
-    @Group("mixed")
-    public void benchmarkMixedCalls(GrpcState state, Blackhole blackhole) throws InterruptedException {
-        // 70% unary, 30% streaming
-        if (Math.random() < 0.7) {
-            benchmarkUnaryCall(state, blackhole);
-        } else {
-            // Smaller streaming batch for mixed workload
-            CountDownLatch latch = new CountDownLatch(1);
-            int requestCount = 10;
-            
-            var responseObserver = new StreamObserver<GeneratePDFReply>() {
-                private int received = 0;
-                
-                @Override
-                public void onNext(GeneratePDFReply reply) {
-                    blackhole.consume(reply);
-                    if (++received == requestCount) {
-                        latch.countDown();
-                    }
-                }
-
-                @Override
-                public void onError(Throwable t) {
-                    blackhole.consume(t);
-                    latch.countDown();
-                }
-
-                @Override
-                public void onCompleted() {
-                    latch.countDown();
-                }
-            };
-
-            var requestObserver = state.asyncStub.streamPDFs(responseObserver);
-
-            try {
-                for (int i = 0; i < requestCount; i++) {
-                    var request = GeneratePDFRequest.newBuilder()
-                            .setFirstName("Mixed" + i)
-                            .setLastName("Test" + i)
-                            .build();
-                    requestObserver.onNext(request);
-                }
-                requestObserver.onCompleted();
-                latch.await(10, TimeUnit.SECONDS);
-            } catch (Exception e) {
-                blackhole.consume(e);
-            }
-        }
+    static GeneratePDFRequest request(String firstName, int index) {
+        return GeneratePDFRequest.newBuilder()
+                .setFirstName(firstName + index)
+                .setLastName("User" + index)
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,475 @@
+package com.example.grpcclient.benchmark;
+
+import com.example.grpcclient.proto.GeneratePDFReply;
+import com.example.grpcclient.proto.GeneratePDFRequest;
+import com.example.grpcclient.proto.MakePDFGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for soak tests: sends requests on a fixed schedule at a target rate,
+ * whether or not earlier calls have completed, and reports latency percentiles and error rates.
+ *
+ * Latency is measured from each request's scheduled send time, not from when it was actually sent,
+ * so a stalled client or server shows up as latency instead of silently lowering the offered load
+ * (coordinated omission). Traffic is a mix of unary calls and requests on long-lived bidirectional
+ * streams, which are rotated every {@code stream-batch} requests. Calls beyond {@code max-in-flight}
+ * are dropped and counted as errors rather than delaying the schedule. Every request gets
+ * {@code timeout-ms}: unary calls as their deadline, stream requests from their scheduled send time,
+ * so a stalled stream shows up as {@code DEADLINE_EXCEEDED} errors while the run is going. Requests
+ * still unanswered after the final drain count as {@code UNFINISHED}, and replies arriving later are
+ * ignored.
+ *
+ * Runs against an in-process {@link MakePdfStandIn} ({@code target=local}, the default) whose service
+ * time follows a {@link ServiceTime} distribution, or against a live server URL. Options are
+ * {@code key=value} arguments, optionally prefixed with {@code --}; see {@link Options}.
+ */
+public class LoadGenerator {
+
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final Options options;
+    private final List<MakePDFGrpc.MakePDFStub> stubs;
+
+    private final Recorder latencies = new Recorder(3);
+    private final Histogram totalLatencies = new Histogram(3);
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Map<String, LongAdder> failuresByCause = new ConcurrentHashMap<>();
+    // Scheduled send time of every unanswered request, by request id. Whoever removes an entry counts
+    // its outcome, so a reply racing a timeout or the drain is counted once
+    private final Map<Long, Long> outstanding = new ConcurrentHashMap<>();
+    private final Set<StreamLane> openLanes = ConcurrentHashMap.newKeySet();
+
+    // Reporter state, only touched by the reporting thread and then by the final report
+    private long lastReportNanos;
+    private long lastSent;
+    private long lastSucceeded;
+    private long lastFailed;
+
+    LoadGenerator(Options options, List<ManagedChannel> channels) {
+        this.options = options;
+        this.stubs = channels.stream().map(MakePDFGrpc::newStub).toList();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        ExecutorService executor = MakePdfStandIn.executor("fixed");
+        MakePdfStandIn standIn = options.isLocal()
+                ? new MakePdfStandIn(options.replyBytes, options.serviceTime, executor)
+                : null;
+        List<ManagedChannel> channels = new ArrayList<>();
+        try {
+            for (int i = 0; i < options.channels; i++) {
+                channels.add(standIn != null
+                        ? standIn.newChannel(executor)
+                        : GrpcBenchmarks.liveChannel(options.target, executor));
+            }
+            System.out.println("Load test: " + options);
+            new LoadGenerator(options, channels).run();
+        } finally {
+            for (ManagedChannel channel : channels) {
+                channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            }
+            if (standIn != null) {
+                standIn.close();
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    void run() throws InterruptedException {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long startNanos = System.nanoTime();
+        lastReportNanos = startNanos;
+        System.out.println("  elapsed  target/s    sent/s      ok/s   err/s   err%     p50 ms     p99 ms    p999 ms     max ms  in-flight");
+        reporter.scheduleAtFixedRate(() -> report(startNanos), options.reportSeconds, options.reportSeconds, TimeUnit.SECONDS);
+        long sweepMillis = Math.max(1, Math.min(100, options.timeoutMs / 10));
+        reporter.scheduleAtFixedRate(this::expireStreamRequests, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+
+        try {
+            generate(startNanos);
+            drain();
+        } finally {
+            reporter.shutdown();
+            reporter.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        synchronized (this) {
+            report(startNanos);
+            summarize(startNanos);
+        }
+    }
+
+    /**
+     * Sends on the open-loop schedule until the run duration is up. If sending ever falls behind, the
+     * overdue requests go out back to back, keeping their original scheduled times.
+     */
+    private void generate(long startNanos) {
+        long endNanos = startNanos + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        StreamLane[] lanes = new StreamLane[options.streams];
+        long requestId = 0;
+        int nextChannel = 0;
+        int nextLane = 0;
+
+        long scheduledNanos = startNanos;
+        while (scheduledNanos < endNanos) {
+            long now;
+            while ((now = System.nanoTime()) < scheduledNanos) {
+                LockSupport.parkNanos(scheduledNanos - now);
+            }
+
+            requestId++;
+            sent.increment();
+            // Only this thread adds, so the check cannot be overtaken
+            if (outstanding.size() >= options.maxInFlight) {
+                fail("DROPPED");
+            } else {
+                outstanding.put(requestId, scheduledNanos);
+                GeneratePDFRequest request = GeneratePDFRequest.newBuilder()
+                        .setFirstName("Load" + requestId)
+                        .setLastName("Test" + requestId)
+                        .setRequestId(requestId)
+                        .build();
+                if (lanes.length == 0 || ThreadLocalRandom.current().nextDouble() < options.unaryShare) {
+                    sendUnary(stubs.get(nextChannel++ % stubs.size()), request);
+                } else {
+                    int lane = nextLane++ % lanes.length;
+                    if (lanes[lane] == null || lanes[lane].isSpent()) {
+                        if (lanes[lane] != null) {
+                            lanes[lane].close();
+                        }
+                        lanes[lane] = new StreamLane(stubs.get(lane % stubs.size()));
+                    }
+                    lanes[lane].send(request);
+                }
+            }
+
+            scheduledNanos += (long) (TimeUnit.SECONDS.toNanos(1) / options.rateAt(scheduledNanos - startNanos));
+        }
+
+        for (StreamLane lane : lanes) {
+            if (lane != null) {
+                lane.close();
+            }
+        }
+    }
+
+    private void drain() throws InterruptedException {
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (!outstanding.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // Abandoned: a reply that still arrives finds its entry gone and is ignored
+        for (Long requestId : new ArrayList<>(outstanding.keySet())) {
+            fail(requestId, "UNFINISHED");
+        }
+    }
+
+    /**
+     * Fails stream requests unanswered {@code timeout-ms} after their scheduled send; a stream has no
+     * per-request deadline of its own.
+     */
+    private void expireStreamRequests() {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(options.timeoutMs);
+        for (StreamLane lane : openLanes) {
+            lane.expireBefore(cutoff);
+        }
+    }
+
+    private void sendUnary(MakePDFGrpc.MakePDFStub stub, GeneratePDFRequest request) {
+        long requestId = request.getRequestId();
+        stub.withDeadlineAfter(options.timeoutMs, TimeUnit.MILLISECONDS)
+                .generatePDF(request, new StreamObserver<>() {
+                    @Override
+                    public void onNext(GeneratePDFReply reply) {
+                        succeed(requestId);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        fail(requestId, Status.fromThrowable(t).getCode().name());
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        // Counted on the reply
+                    }
+                });
+    }
+
+    private void succeed(long requestId) {
+        Long scheduledNanos = outstanding.remove(requestId);
+        if (scheduledNanos == null) {
+            return; // Already timed out or abandoned
+        }
+        latencies.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledNanos)));
+        succeeded.increment();
+    }
+
+    private void fail(long requestId, String cause) {
+        if (outstanding.remove(requestId) != null) {
+            fail(cause);
+        }
+    }
+
+    private void fail(String cause) {
+        failed.increment();
+        failuresByCause.computeIfAbsent(cause, key -> new LongAdder()).increment();
+    }
+
+    private synchronized void report(long startNanos) {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - lastReportNanos) / 1e9);
+        Histogram interval = latencies.getIntervalHistogram();
+        totalLatencies.add(interval);
+
+        long sentNow = sent.sum();
+        long okNow = succeeded.sum();
+        long failedNow = failed.sum();
+        long intervalOk = okNow - lastSucceeded;
+        long intervalFailed = failedNow - lastFailed;
+        long finished = intervalOk + intervalFailed;
+
+        System.out.printf("%8.0fs %9.0f %9.0f %9.0f %7.0f %5.2f%% %10.2f %10.2f %10.2f %10.2f %10d%n",
+                (now - startNanos) / 1e9,
+                options.rateAt(now - startNanos),
+                (sentNow - lastSent) / seconds,
+                intervalOk / seconds,
+                intervalFailed / seconds,
+                finished == 0 ? 0.0 : 100.0 * intervalFailed / finished,
+                millis(interval, 50.0),
+                millis(interval, 99.0),
+                millis(interval, 99.9),
+                interval.getMaxValue() / 1000.0,
+                outstanding.size());
+
+        lastReportNanos = now;
+        lastSent = sentNow;
+        lastSucceeded = okNow;
+        lastFailed = failedNow;
+    }
+
+    private void summarize(long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long ok = succeeded.sum();
+        long errors = failed.sum();
+        System.out.println("\n=== Load Test Summary ===");
+        System.out.printf("Duration: %.1fs, sent: %d (%.0f/s), ok: %d (%.0f/s), errors: %d (%.2f%%)%n",
+                seconds, sent.sum(), sent.sum() / seconds, ok, ok / seconds, errors,
+                ok + errors == 0 ? 0.0 : 100.0 * errors / (ok + errors));
+        System.out.printf("Latency ms: p50 %.2f, p90 %.2f, p99 %.2f, p999 %.2f, max %.2f, mean %.2f%n",
+                millis(totalLatencies, 50.0),
+                millis(totalLatencies, 90.0),
+                millis(totalLatencies, 99.0),
+                millis(totalLatencies, 99.9),
+                totalLatencies.getMaxValue() / 1000.0,
+                totalLatencies.getMean() / 1000.0);
+        if (!failuresByCause.isEmpty()) {
+            Map<String, Long> causes = new TreeMap<>();
+            failuresByCause.forEach((cause, count) -> causes.put(cause, count.sum()));
+            System.out.println("Errors by cause: " + causes);
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getTotalCount() == 0 ? 0.0 : histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * One long-lived bidirectional stream. Replies are matched to their request by id, since the server
+     * may answer out of order. A server that doesn't echo ids (id 0) answers in order, so those replies
+     * match the oldest pending send. Only the generator thread sends.
+     */
+    private class StreamLane implements StreamObserver<GeneratePDFReply> {
+        // Ids sent on this stream and not yet answered; ids increase with every send
+        private final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<>();
+        private final StreamObserver<GeneratePDFRequest> requests;
+        private volatile boolean broken;
+        private int sentOnLane;
+
+        StreamLane(MakePDFGrpc.MakePDFStub stub) {
+            openLanes.add(this);
+            this.requests = stub.streamPDFs(this);
+        }
+
+        boolean isSpent() {
+            return broken || sentOnLane >= options.streamBatch;
+        }
+
+        void send(GeneratePDFRequest request) {
+            sentOnLane++;
+            pending.add(request.getRequestId());
+            requests.onNext(request);
+        }
+
+        /**
+         * Fails the pending requests scheduled before {@code cutoffNanos}; they are the oldest ones.
+         */
+        void expireBefore(long cutoffNanos) {
+            for (Long requestId : pending) {
+                Long scheduledNanos = outstanding.get(requestId);
+                if (scheduledNanos != null && scheduledNanos - cutoffNanos >= 0) {
+                    return; // Not due yet, nor is anything sent after it
+                }
+                if (pending.remove(requestId)) {
+                    fail(requestId, "DEADLINE_EXCEEDED");
+                }
+            }
+        }
+
+        void close() {
+            if (!broken) {
+                requests.onCompleted();
+            }
+        }
+
+        @Override
+        public void onNext(GeneratePDFReply reply) {
+            Long requestId;
+            if (reply.getRequestId() != 0) {
+                requestId = pending.remove(reply.getRequestId()) ? reply.getRequestId() : null;
+            } else {
+                requestId = pending.pollFirst();
+            }
+            if (requestId != null) {
+                succeed(requestId);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            broken = true;
+            abandonPending(Status.fromThrowable(t).getCode().name());
+        }
+
+        @Override
+        public void onCompleted() {
+            abandonPending("NO_REPLY");
+        }
+
+        private void abandonPending(String cause) {
+            openLanes.remove(this);
+            Long requestId;
+            while ((requestId = pending.pollFirst()) != null) {
+                fail(requestId, cause);
+            }
+        }
+    }
+
+    /**
+     * Load test options, given as {@code key=value} arguments:
+     * <ul>
+     *   <li>{@code target} - {@code local} for the in-process stand-in, or a server URL</li>
+     *   <li>{@code rate}, {@code ramp-to}, {@code ramp-seconds} - requests/s, ramped linearly from
+     *       {@code rate} to {@code ramp-to} over the first {@code ramp-seconds}</li>
+     *   <li>{@code duration-seconds} - total run time including the ramp</li>
+     *   <li>{@code unary-share} - fraction of requests sent as unary calls; the rest go on streams</li>
+     *   <li>{@code streams}, {@code stream-batch} - concurrent streams, and requests per stream
+     *       before it is replaced</li>
+     *   <li>{@code channels}, {@code max-in-flight}, {@code timeout-ms}, {@code report-seconds}</li>
+     *   <li>{@code reply-bytes}, {@code service-time} - stand-in reply size and {@link ServiceTime}
+     *       distribution; ignored for a live target</li>
+     * </ul>
+     */
+    static final class Options {
+        String target = "local";
+        double rate = 100;
+        double rampTo = -1;
+        long rampSeconds = 0;
+        long durationSeconds = 60;
+        double unaryShare = 0.7;
+        int streams = 4;
+        int streamBatch = 1000;
+        int channels = 1;
+        int maxInFlight = 10_000;
+        long timeoutMs = 30_000;
+        long reportSeconds = 10;
+        int replyBytes = 64 * 1024;
+        String serviceTimeSpec = "fixed:0";
+        ServiceTime serviceTime = ServiceTime.NONE;
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                String option = arg.startsWith("--") ? arg.substring(2) : arg;
+                int equals = option.indexOf('=');
+                if (equals <= 0) {
+                    throw new IllegalArgumentException("Expected key=value, got: " + arg);
+                }
+                values.put(option.substring(0, equals), option.substring(equals + 1));
+            }
+
+            Options options = new Options();
+            options.target = values.getOrDefault("target", options.target);
+            options.rate = Double.parseDouble(values.getOrDefault("rate", String.valueOf(options.rate)));
+            options.rampTo = Double.parseDouble(values.getOrDefault("ramp-to", String.valueOf(options.rate)));
+            options.rampSeconds = Long.parseLong(values.getOrDefault("ramp-seconds", String.valueOf(options.rampSeconds)));
+            options.durationSeconds = Long.parseLong(values.getOrDefault("duration-seconds", String.valueOf(options.durationSeconds)));
+            options.unaryShare = Double.parseDouble(values.getOrDefault("unary-share", String.valueOf(options.unaryShare)));
+            options.streams = Integer.parseInt(values.getOrDefault("streams", String.valueOf(options.streams)));
+            options.streamBatch = Integer.parseInt(values.getOrDefault("stream-batch", String.valueOf(options.streamBatch)));
+            options.channels = Integer.parseInt(values.getOrDefault("channels", String.valueOf(options.channels)));
+            options.maxInFlight = Integer.parseInt(values.getOrDefault("max-in-flight", String.valueOf(options.maxInFlight)));
+            options.timeoutMs = Long.parseLong(values.getOrDefault("timeout-ms", String.valueOf(options.timeoutMs)));
+            options.reportSeconds = Long.parseLong(values.getOrDefault("report-seconds", String.valueOf(options.reportSeconds)));
+            options.replyBytes = Integer.parseInt(values.getOrDefault("reply-bytes", String.valueOf(options.replyBytes)));
+            options.serviceTimeSpec = values.getOrDefault("service-time", options.serviceTimeSpec);
+            options.serviceTime = ServiceTime.parse(options.serviceTimeSpec);
+
+            if (options.rate <= 0 || options.rampTo <= 0) {
+                throw new IllegalArgumentException("Rates must be positive");
+            }
+            if (options.channels < 1 || options.streams < 0 || options.streamBatch < 1 || options.reportSeconds < 1) {
+                throw new IllegalArgumentException("channels, stream-batch and report-seconds must be at least 1, streams at least 0");
+            }
+            return options;
+        }
+
+        boolean isLocal() {
+            return "local".equals(target);
+        }
+
+        double rateAt(long elapsedNanos) {
+            if (rampSeconds <= 0) {
+                return rampTo;
+            }
+            double progress = Math.min(1.0, elapsedNanos / (double) TimeUnit.SECONDS.toNanos(rampSeconds));
+            return rate + (rampTo - rate) * progress;
+        }
+
+        @Override
+        public String toString() {
+            return "target=" + target
+                    + ", rate=" + rate + (rampSeconds > 0 ? " -> " + rampTo + " over " + rampSeconds + "s" : "")
+                    + "/s, duration=" + durationSeconds + "s"
+                    + ", unary-share=" + unaryShare
+                    + ", streams=" + streams + " x " + streamBatch
+                    + ", channels=" + channels
+                    + (isLocal() ? ", reply-bytes=" + replyBytes + ", service-time=" + serviceTimeSpec : "");
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.grpcclient.benchmark;
+
+import com.example.grpcclient.compression.MessageCompression;
+import com.example.grpcclient.proto.GeneratePDFBatchReply;
+import com.example.grpcclient.proto.GeneratePDFBatchRequest;
+import com.example.grpcclient.proto.GeneratePDFReply;
+import com.example.grpcclient.proto.GeneratePDFRequest;
+import com.example.grpcclient.proto.MakePDFGrpc;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import io.grpc.ClientInterceptor;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process MakePDF server for benchmarks, so they need neither the real service nor a network.
+ * {@link #onLoopback} serves the same stand-in over TCP on the loopback interface instead, for
+ * benchmarks that measure the Netty transport itself. Only a loopback stand-in can compress its
+ * replies, as a server with response compression enabled would; the in-process transport never
+ * compresses.
+ *
+ * Every reply carries the same PDF-like payload of {@code replyBytes} and echoes the request id. Each
+ * reply is delayed by a draw from the {@link ServiceTime} distribution on a timer instead of blocking a
+ * thread, so the server itself never becomes the bottleneck being measured. With varying service times
+ * streamed replies can overtake each other, as they may with the real server; a stream completes once
+ * every reply has been sent.
+ */
+public class MakePdfStandIn implements Closeable {
+
+    private final String name = InProcessServerBuilder.generateName();
+    private final ByteString pdf;
+    private final ServiceTime serviceTime;
+    private final ScheduledExecutorService timer;
+    private final Server server;
+    private final boolean loopback;
+    private final String replyCompression;
+
+    public MakePdfStandIn(int replyBytes, long serviceTimeMicros, Executor executor) throws IOException {
+        this(replyBytes, ServiceTime.fixed(serviceTimeMicros), executor);
+    }
+
+    public MakePdfStandIn(int replyBytes, ServiceTime serviceTime, Executor executor) throws IOException {
+        this(replyBytes, serviceTime, executor, false, MessageCompression.IDENTITY);
+    }
+
+    private MakePdfStandIn(int replyBytes, ServiceTime serviceTime, Executor executor, boolean loopback,
+                           String replyCompression) throws IOException {
+        if (!MessageCompression.IDENTITY.equals(replyCompression)) {
+            MessageCompression.codec(replyCompression);
+        }
+        this.loopback = loopback;
+        this.replyCompression = replyCompression;
+        this.pdf = ByteString.copyFrom(CompressionBenchmarks.pdfLikePayload(replyBytes));
+        this.serviceTime = serviceTime;
+        this.timer = serviceTime != ServiceTime.NONE ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stand-in-timer");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+
+        ServerBuilder<?> builder = loopback
+                ? NettyServerBuilder.forAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+                : InProcessServerBuilder.forName(name);
+        builder.addService(new Service())
+                .compressorRegistry(MessageCompression.compressorRegistry())
+                .decompressorRegistry(MessageCompression.decompressorRegistry());
+        this.server = (executor == null ? builder.directExecutor() : builder.executor(executor)).build().start();
+    }
+
+    /**
+     * Starts a stand-in listening on an ephemeral loopback port; connect to {@link #port()}.
+     */
+    public static MakePdfStandIn onLoopback(int replyBytes, ServiceTime serviceTime, Executor executor)
+            throws IOException {
+        return onLoopback(replyBytes, serviceTime, executor, MessageCompression.IDENTITY);
+    }
+
+    /**
+     * Like {@link #onLoopback(int, ServiceTime, Executor)}, compressing every reply with
+     * {@code replyCompression} when the client accepts it.
+     */
+    public static MakePdfStandIn onLoopback(int replyBytes, ServiceTime serviceTime, Executor executor,
+                                            String replyCompression) throws IOException {
+        return new MakePdfStandIn(replyBytes, serviceTime, executor, true, replyCompression);
+    }
+
+    public int port() {
+        return server.getPort();
+    }
+
+    /**
+     * Opens a new channel to the stand-in. Callbacks run on {@code executor}, or on the transport
+     * thread when it is null.
+     */
+    public ManagedChannel newChannel(Executor executor, ClientInterceptor... interceptors) {
+        if (loopback) {
+            throw new IllegalStateException("Loopback stand-in needs a Netty channel to port " + port());
+        }
+        InProcessChannelBuilder builder = InProcessChannelBuilder.forName(name).intercept(interceptors);
+        return (executor == null ? builder.directExecutor() : builder.executor(executor)).build();
+    }
+
+    /**
+     * Executor for benchmark {@code @Param}s: {@code direct} (null, run on the calling thread),
+     * {@code fixed} (one platform thread per core) or {@code virtual} (a virtual thread per task).
+     */
+    public static ExecutorService executor(String kind) {
+        return switch (kind) {
+            case "direct" -> null;
+            case "fixed" -> Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            case "virtual" -> Executors.newVirtualThreadPerTaskExecutor();
+            default -> throw new IllegalArgumentException("Unknown executor type: " + kind);
+        };
+    }
+
+    @Override
+    public void close() {
+        server.shutdownNow();
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
+    private GeneratePDFReply replyTo(GeneratePDFRequest request) {
+        return GeneratePDFReply.newBuilder()
+                .setPdf(pdf)
+                .setRequestId(request.getRequestId())
+                .build();
+    }
+
+    /**
+     * Turns on reply compression for a call; must run before its first reply.
+     */
+    private <T> StreamObserver<T> compressing(StreamObserver<T> responseObserver) {
+        if (!MessageCompression.IDENTITY.equals(replyCompression)) {
+            ((ServerCallStreamObserver<T>) responseObserver).setCompression(replyCompression);
+        }
+        return responseObserver;
+    }
+
+    private void afterServiceTime(Runnable reply) {
+        long delayMicros = timer == null ? 0 : serviceTime.nextMicros();
+        if (delayMicros <= 0) {
+            reply.run();
+        } else {
+            timer.schedule(reply, delayMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private class Service extends MakePDFGrpc.MakePDFImplBase {
+
+        @Override
+        public void generatePDF(GeneratePDFRequest request, StreamObserver<GeneratePDFReply> responseObserver) {
+            compressing(responseObserver);
+            afterServiceTime(() -> {
+                responseObserver.onNext(replyTo(request));
+                responseObserver.onCompleted();
+            });
+        }
+
+        @Override
+        public StreamObserver<GeneratePDFRequest> streamPDFs(StreamObserver<GeneratePDFReply> responseObserver) {
+            compressing(responseObserver);
+            return new StreamObserver<>() {
+                // Guarded by this; replies arrive from the timer while requests arrive from the transport
+                private int pending;
+                private boolean halfClosed;
+
+                @Override
+                public void onNext(GeneratePDFRequest request) {
+                    synchronized (this) {
+                        pending++;
+                    }
+                    afterServiceTime(() -> {
+                        synchronized (this) {
+                            responseObserver.onNext(replyTo(request));
+                            if (--pending == 0 && halfClosed) {
+                                responseObserver.onCompleted();
+                            }
+                        }
+                    });
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    // The client went away; nothing to clean up
+                }
+
+                @Override
+                public synchronized void onCompleted() {
+                    halfClosed = true;
+                    if (pending == 0) {
+                        responseObserver.onCompleted();
+                    }
+                }
+            };
+        }
+
+        /**
+         * Answers each request batch after a single service-time draw, as a server generating a
+         * batch's PDFs in parallel would: with one reply batch, or several when the replies would
+         * exceed the request's {@code maxReplyBytes}.
+         */
+        @Override
+        public StreamObserver<GeneratePDFBatchRequest> generatePDFBatch(StreamObserver<GeneratePDFBatchReply> responseObserver) {
+            compressing(responseObserver);
+            return new StreamObserver<>() {
+                private int pending;
+                private boolean halfClosed;
+
+                @Override
+                public void onNext(GeneratePDFBatchRequest batch) {
+                    synchronized (this) {
+                        pending++;
+                    }
+                    afterServiceTime(() -> {
+                        long maxReplyBytes = batch.getMaxReplyBytes() == 0 ? Long.MAX_VALUE : batch.getMaxReplyBytes();
+                        synchronized (this) {
+                            GeneratePDFBatchReply.Builder replies = GeneratePDFBatchReply.newBuilder();
+                            long replyBytes = 0;
+                            for (GeneratePDFRequest request : batch.getRequestsList()) {
+                                GeneratePDFReply reply = replyTo(request);
+                                int size = CodedOutputStream.computeMessageSize(
+                                        GeneratePDFBatchReply.REPLIES_FIELD_NUMBER, reply);
+                                if (replies.getRepliesCount() > 0 && replyBytes + size > maxReplyBytes) {
+                                    responseObserver.onNext(replies.build());
+                                    replies = GeneratePDFBatchReply.newBuilder();
+                                    replyBytes = 0;
+                                }
+                                replies.addReplies(reply);
+                                replyBytes += size;
+                            }
+                            responseObserver.onNext(replies.build());
+                            if (--pending == 0 && halfClosed) {
+                                responseObserver.onCompleted();
+                            }
+                        }
+                    });
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    // The client went away; nothing to clean up
+                }
+
+                @Override
+                public synchronized void onCompleted() {
+                    halfClosed = true;
+                    if (pending == 0) {
+                        responseObserver.onCompleted();
+                    }
+                }
+            };
+        }
+    }
+}
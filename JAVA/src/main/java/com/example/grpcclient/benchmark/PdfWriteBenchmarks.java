@@ -0,0 +1,73 @@
+package com.example.grpcclient.benchmark;
+
+import com.example.grpcclient.util.ByteStringFiles;
+import com.google.protobuf.ByteString;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the original heap-copy PDF write ({@code toByteArray()} + {@code Files.write}) with the
+ * gathering FileChannel write used by the client. Run with {@code -prof gc} to see the allocation gap.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class PdfWriteBenchmarks {
+
+    @Param({"65536", "1048576", "8388608"})
+    public int pdfSize;
+
+    private ByteString pdf;
+    private Path outputDir;
+    private long fileIndex;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        byte[] data = new byte[pdfSize];
+        new Random(42).nextBytes(data);
+        pdf = ByteString.copyFrom(data);
+        outputDir = Files.createTempDirectory("pdf-write-bench");
+    }
+
+    @TearDown(Level.Iteration)
+    public void clean() throws IOException {
+        try (Stream<Path> files = Files.list(outputDir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException {
+        try (Stream<Path> files = Files.walk(outputDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void heapCopyWrite() throws IOException {
+        Files.write(nextFile(), pdf.toByteArray());
+    }
+
+    @Benchmark
+    public void gatheringChannelWrite() throws IOException {
+        ByteStringFiles.write(nextFile(), pdf);
+    }
+
+    private Path nextFile() {
+        return outputDir.resolve("pdf_" + (fileIndex++) + ".pdf");
+    }
+}
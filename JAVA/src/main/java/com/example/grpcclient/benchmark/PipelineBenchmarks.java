@@ -0,0 +1,177 @@
+package com.example.grpcclient.benchmark;
+
+import com.example.grpcclient.config.ChannelPool;
+import com.example.grpcclient.config.GrpcClientProperties;
+import com.example.grpcclient.marshal.PooledReplyMarshaller;
+import com.example.grpcclient.metrics.PipelineMetrics;
+import com.example.grpcclient.metrics.PrometheusExporter;
+import com.example.grpcclient.proto.MakePDFGrpc;
+import com.example.grpcclient.service.GrpcClientService;
+import com.example.grpcclient.util.DirectBufferPool;
+import io.grpc.ManagedChannel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end runs of the real client pipeline ({@link GrpcClientService}: CSV ingestion, request
+ * queue, streams, response queue and writers) against an in-process {@link MakePdfStandIn}. Needs no
+ * network, so it can run in CI.
+ *
+ * Each invocation processes a CSV of {@code streamBatch} rows; the {@code rows} counter reports the
+ * resulting rows/s. Writing to disk is a separate parameter so the pipeline can be measured with and
+ * without the output stage. In-process replies aren't detachable, so {@code pooledReplyBuffers}
+ * measures the single off-heap copy here; over Netty the replies alias the transport's buffers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class PipelineBenchmarks {
+
+    @Param({"16384", "262144"})
+    public int payloadSize;
+
+    @Param({"1000", "10000"})
+    public int streamBatch;
+
+    @Param({"1", "4"})
+    public int channelCount;
+
+    @Param({"direct", "virtual"})
+    public String executor;
+
+    @Param({"0"})
+    public long serviceTimeMicros;
+
+    @Param({"false"})
+    public boolean writeToDisk;
+
+    @Param({"false", "true"})
+    public boolean pooledReplyBuffers;
+
+    @Param({"64"})
+    public int batchMaxRows;
+
+    private MakePdfStandIn standIn;
+    private ExecutorService callbackExecutor;
+    private List<ManagedChannel> channels;
+    private Path workDir;
+    private GrpcClientProperties properties;
+    private GrpcClientService service;
+    private PooledReplyMarshaller replyMarshaller;
+
+    /**
+     * Rows completed, reported by JMH as a rate next to the per-run throughput.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        callbackExecutor = MakePdfStandIn.executor(executor);
+        standIn = new MakePdfStandIn(payloadSize, serviceTimeMicros, callbackExecutor);
+        replyMarshaller = new PooledReplyMarshaller(new DirectBufferPool(256L * 1024 * 1024));
+        channels = new ArrayList<>();
+        for (int i = 0; i < channelCount; i++) {
+            channels.add(pooledReplyBuffers
+                    ? standIn.newChannel(callbackExecutor, replyMarshaller.interceptor())
+                    : standIn.newChannel(callbackExecutor));
+        }
+
+        workDir = Files.createTempDirectory("pipeline-bench");
+        Path csv = workDir.resolve("names.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            for (int i = 0; i < streamBatch; i++) {
+                writer.write("Last" + i + ",First" + i + "\n");
+            }
+        }
+
+        properties = new GrpcClientProperties();
+        properties.setInputPath(csv.toString());
+        properties.setOutputPath(workDir.resolve("output").toString());
+        properties.setWriteToDisk(writeToDisk);
+        properties.setChannelPoolSize(channelCount);
+        properties.setShowEnhancedProgressBar(false);
+        properties.setMetricsEnabled(false);
+        properties.setPooledReplyBuffers(pooledReplyBuffers);
+        properties.setBatchMaxRows(batchMaxRows);
+
+        ManagedChannel primary = channels.get(0);
+        service = new GrpcClientService(
+                MakePDFGrpc.newBlockingStub(primary),
+                MakePDFGrpc.newStub(primary),
+                MakePDFGrpc.newFutureStub(primary),
+                new ChannelPool(channels),
+                properties,
+                new PipelineMetrics(new SimpleMeterRegistry(), PrometheusExporter.disabled()),
+                replyMarshaller);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clean() throws IOException {
+        deleteTree(workDir.resolve("output"));
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException, InterruptedException {
+        service.close();
+        for (ManagedChannel channel : channels) {
+            channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+        }
+        standIn.close();
+        if (callbackExecutor != null) {
+            callbackExecutor.shutdownNow();
+        }
+        deleteTree(workDir);
+    }
+
+    @Benchmark
+    public void streamingRun(Rows rows) {
+        properties.setCallMode(GrpcClientProperties.CallMode.STREAMING);
+        service.callBidirectionalStreaming();
+        rows.rows += streamBatch;
+    }
+
+    /**
+     * The streaming pipeline over GeneratePDFBatch, {@code batchMaxRows} rows per message.
+     */
+    @Benchmark
+    public void batchedRun(Rows rows) {
+        properties.setCallMode(GrpcClientProperties.CallMode.BATCHED);
+        service.callBidirectionalStreaming();
+        rows.rows += streamBatch;
+    }
+
+    @Benchmark
+    public void unaryBulkRun(Rows rows) {
+        service.callUnaryBulk();
+        rows.rows += streamBatch;
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
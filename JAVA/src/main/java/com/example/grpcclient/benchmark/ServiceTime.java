@@ -0,0 +1,60 @@
+package com.example.grpcclient.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Service-time distribution for {@link MakePdfStandIn}, in microseconds.
+ *
+ * Parsed from a spec of the form {@code kind:args}:
+ * <ul>
+ *   <li>{@code fixed:500} - always 500 us (a bare number means the same)</li>
+ *   <li>{@code uniform:200-800} - uniform between 200 and 800 us</li>
+ *   <li>{@code exponential:500} - exponential with a 500 us mean</li>
+ *   <li>{@code lognormal:500,0.8} - log-normal with a 500 us median and shape 0.8, for a long tail</li>
+ * </ul>
+ */
+@FunctionalInterface
+public interface ServiceTime {
+
+    ServiceTime NONE = () -> 0;
+
+    long nextMicros();
+
+    static ServiceTime fixed(long micros) {
+        return micros <= 0 ? NONE : () -> micros;
+    }
+
+    static ServiceTime parse(String spec) {
+        String trimmed = spec.trim();
+        int colon = trimmed.indexOf(':');
+        String kind = colon < 0 ? "fixed" : trimmed.substring(0, colon);
+        String args = colon < 0 ? trimmed : trimmed.substring(colon + 1);
+        try {
+            return switch (kind) {
+                case "fixed" -> fixed(Long.parseLong(args));
+                case "uniform" -> {
+                    String[] bounds = args.split("-");
+                    long min = Long.parseLong(bounds[0].trim());
+                    long max = Long.parseLong(bounds[1].trim());
+                    if (max < min) {
+                        throw new IllegalArgumentException("Uniform service time needs min <= max: " + spec);
+                    }
+                    yield () -> ThreadLocalRandom.current().nextLong(min, max + 1);
+                }
+                case "exponential" -> {
+                    double mean = Double.parseDouble(args);
+                    yield () -> (long) (-mean * Math.log(1.0 - ThreadLocalRandom.current().nextDouble()));
+                }
+                case "lognormal" -> {
+                    String[] parts = args.split(",");
+                    double mu = Math.log(Double.parseDouble(parts[0].trim()));
+                    double sigma = Double.parseDouble(parts[1].trim());
+                    yield () -> (long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian());
+                }
+                default -> throw new IllegalArgumentException("Unknown service time distribution: " + spec);
+            };
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed service time: " + spec, e);
+        }
+    }
+}
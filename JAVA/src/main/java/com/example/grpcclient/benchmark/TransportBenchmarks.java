@@ -0,0 +1,125 @@
+package com.example.grpcclient.benchmark;
+
+import com.example.grpcclient.compression.MessageCompression;
+import com.example.grpcclient.config.GrpcConfiguration;
+import com.example.grpcclient.config.TransportProfile;
+import com.example.grpcclient.proto.GeneratePDFReply;
+import com.example.grpcclient.proto.MakePDFGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link TransportProfile} settings over real TCP, against a {@link MakePdfStandIn} on the
+ * loopback interface. Run it on each host class and set the fastest combination in
+ * {@code application.yml}; {@code EPOLL} only runs on Linux, so pass {@code -p transport=NIO}
+ * elsewhere.
+ *
+ * Each streaming invocation sends {@code streamBatch} requests on one stream; divide by the batch size
+ * for requests/s. {@code replyCompression} has the stand-in compress its replies, the direction that
+ * carries the PDFs; compare it with {@code identity} to see whether the codec pays for itself.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TransportBenchmarks {
+
+    @Param({"NIO", "EPOLL"})
+    public TransportProfile.Transport transport;
+
+    @Param({"0"})
+    public int eventLoopThreads;
+
+    @Param({"DEFAULT", "DIRECT", "DEDICATED"})
+    public TransportProfile.CallbackExecutor callbackExecutor;
+
+    @Param({"0", "16777216"})
+    public int flowControlWindowBytes;
+
+    @Param({"true"})
+    public boolean flowControlAutoTune;
+
+    @Param({"POOLED_DIRECT", "UNPOOLED"})
+    public TransportProfile.BufferAllocator bufferAllocator;
+
+    @Param({"262144"})
+    public int payloadSize;
+
+    @Param({"100"})
+    public int streamBatch;
+
+    @Param({"2"})
+    public int channelCount;
+
+    @Param({"identity", "zstd"})
+    public String replyCompression;
+
+    private ExecutorService serverExecutor;
+    private MakePdfStandIn standIn;
+    private TransportProfile profile;
+    private List<ManagedChannel> channels;
+    private List<MakePDFGrpc.MakePDFStub> asyncStubs;
+    private List<MakePDFGrpc.MakePDFBlockingStub> blockingStubs;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        serverExecutor = MakePdfStandIn.executor("fixed");
+        standIn = MakePdfStandIn.onLoopback(payloadSize, ServiceTime.NONE, serverExecutor, replyCompression);
+        profile = new TransportProfile(transport, eventLoopThreads, callbackExecutor,
+                Runtime.getRuntime().availableProcessors(), flowControlWindowBytes, flowControlAutoTune,
+                bufferAllocator);
+
+        channels = new ArrayList<>();
+        for (int i = 0; i < channelCount; i++) {
+            channels.add(profile.apply(NettyChannelBuilder
+                            .forAddress(InetAddress.getLoopbackAddress().getHostAddress(), standIn.port())
+                            .maxInboundMessageSize(GrpcConfiguration.MAX_INBOUND_MESSAGE_BYTES)
+                            .decompressorRegistry(MessageCompression.decompressorRegistry())
+                            .usePlaintext())
+                    .build());
+        }
+        asyncStubs = channels.stream().map(MakePDFGrpc::newStub).toList();
+        blockingStubs = channels.stream().map(MakePDFGrpc::newBlockingStub).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws InterruptedException {
+        for (ManagedChannel channel : channels) {
+            channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+        }
+        profile.close();
+        standIn.close();
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void streaming(Blackhole blackhole) throws InterruptedException {
+        GrpcBenchmarks.stream(asyncStubs.get(nextChannel()), streamBatch, "Transport", blackhole);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public GeneratePDFReply unary() {
+        int index = nextChannel();
+        return blockingStubs.get(index).generatePDF(GrpcBenchmarks.request("Transport", index));
+    }
+
+    private int nextChannel() {
+        // A benign race: threads may share a channel index now and then, which only skews the spread
+        next = (next + 1) % channelCount;
+        return next;
+    }
+}
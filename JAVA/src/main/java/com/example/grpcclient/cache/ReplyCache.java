@@ -0,0 +1,250 @@
+package com.example.grpcclient.cache;
+
+import com.example.grpcclient.proto.GeneratePDFRequest;
+import com.example.grpcclient.util.ByteBudgetQueue;
+import com.example.grpcclient.util.ByteStringFiles;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Content-addressed cache of generated PDFs, keyed by the SHA-256 of the serialized request.
+ *
+ * The memory tier is an LRU bounded by total PDF bytes. Every entry is also persisted under
+ * {@code <directory>/<2 hex chars>/<hash>.pdf}, so the disk tier survives restarts; disk hits are
+ * promoted back into memory. Disk writes happen in the background on a fixed set of writers and never
+ * block callers; the PDFs waiting for them are bounded by a byte budget, which callers respect by
+ * checking {@link #hasWriteCapacity()} before taking on more replies, like the response queue.
+ */
+public class ReplyCache implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplyCache.class);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path directory;
+    private final long maxMemoryBytes;
+    private final LinkedHashMap<String, ByteString> memory = new LinkedHashMap<>(1024, 0.75f, true);
+    private long memoryBytes;
+    private static final int DISK_WRITERS = 2;
+
+    private record PendingWrite(String key, ByteString pdf) {
+    }
+
+    private final ByteBudgetQueue<PendingWrite> pendingWrites;
+    private final ExecutorService diskWriters = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Runnable> capacityListeners = new CopyOnWriteArrayList<>();
+    private final Object drained = new Object();
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ReplyCache(Path directory, long maxMemoryBytes, long maxPendingWriteBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.pendingWrites = new ByteBudgetQueue<>(maxPendingWriteBytes, write -> write.pdf().size());
+        for (int i = 0; i < DISK_WRITERS; i++) {
+            diskWriters.submit(this::writeToDisk);
+        }
+    }
+
+    public static String keyFor(GeneratePDFRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HEX.formatHex(digest.digest(request.toByteArray()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public Optional<ByteString> get(String key) {
+        synchronized (memory) {
+            ByteString pdf = memory.get(key);
+            if (pdf != null) {
+                memoryHits.increment();
+                return Optional.of(pdf);
+            }
+        }
+
+        try {
+            // The array is never touched again, so it can back the ByteString directly
+            ByteString pdf = UnsafeByteOperations.unsafeWrap(Files.readAllBytes(fileFor(key)));
+            diskHits.increment();
+            remember(key, pdf);
+            return Optional.of(pdf);
+        } catch (NoSuchFileException e) {
+            misses.increment();
+        } catch (IOException e) {
+            logger.warn("Failed to read cached PDF {}", key, e);
+            misses.increment();
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Never blocks; a single PDF may take the pending writes past their budget.
+     */
+    public void put(String key, ByteString pdf) {
+        remember(key, pdf);
+        pendingWrites.add(new PendingWrite(key, pdf));
+    }
+
+    /**
+     * True while the PDFs waiting to be persisted are within their byte budget.
+     */
+    public boolean hasWriteCapacity() {
+        return pendingWrites.hasCapacity();
+    }
+
+    /**
+     * Blocks until {@link #hasWriteCapacity()}.
+     */
+    public void awaitWriteCapacity() throws InterruptedException {
+        pendingWrites.awaitCapacity();
+    }
+
+    /**
+     * Runs {@code listener} on a disk writer whenever a persisted PDF frees budget.
+     */
+    public void onWriteCapacity(Runnable listener) {
+        capacityListeners.add(listener);
+    }
+
+    private void remember(String key, ByteString pdf) {
+        if (pdf.size() > maxMemoryBytes) {
+            return;
+        }
+        synchronized (memory) {
+            ByteString previous = memory.put(key, pdf);
+            memoryBytes += pdf.size() - (previous != null ? previous.size() : 0);
+
+            Iterator<Map.Entry<String, ByteString>> eldest = memory.entrySet().iterator();
+            while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+                memoryBytes -= eldest.next().getValue().size();
+                eldest.remove();
+            }
+        }
+    }
+
+    private void writeToDisk() {
+        try {
+            while (true) {
+                PendingWrite write = pendingWrites.take();
+                try {
+                    persist(write.key(), write.pdf());
+                } catch (RuntimeException e) {
+                    // A writer that died would leave flush(), close() and every paused shard waiting forever
+                    logger.warn("Failed to persist cached PDF {}", write.key(), e);
+                } finally {
+                    pendingWrites.release(write);
+                    capacityFreed();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void capacityFreed() {
+        for (Runnable listener : capacityListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                logger.warn("Reply cache capacity listener failed", e);
+            }
+        }
+        synchronized (drained) {
+            drained.notifyAll();
+        }
+    }
+
+    private void persist(String key, ByteString pdf) {
+        Path target = fileFor(key);
+        if (Files.exists(target)) {
+            return;
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            // Write aside and move into place so a crash never leaves a truncated entry behind
+            Path temp = target.resolveSibling(key + "." + UUID.randomUUID() + ".tmp");
+            ByteStringFiles.write(temp, pdf);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Failed to persist cached PDF {}", key, e);
+        }
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + ".pdf");
+    }
+
+    public long hits() { return memoryHits.sum() + diskHits.sum(); }
+    public long misses() { return misses.sum(); }
+
+    public double hitRate() {
+        long lookups = hits() + misses();
+        return lookups == 0 ? 0 : (double) hits() / lookups;
+    }
+
+    public String summary() {
+        return String.format("Reply cache: %,d hits (%,d memory, %,d disk), %,d misses, %.1f%% hit rate",
+                hits(), memoryHits.sum(), diskHits.sum(), misses(), hitRate() * 100);
+    }
+
+    public void resetStats() {
+        memoryHits.reset();
+        diskHits.reset();
+        misses.reset();
+    }
+
+    /**
+     * Waits for the disk writes queued so far to finish.
+     */
+    public void flush() throws InterruptedException {
+        synchronized (drained) {
+            while (pendingWrites.usedBytes() > 0) {
+                drained.wait();
+            }
+        }
+    }
+
+    /**
+     * Persists what is still pending, then stops the disk writers.
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Closed the reply cache with {} bytes of PDFs not yet persisted", pendingWrites.usedBytes());
+        }
+        diskWriters.shutdownNow();
+        try {
+            diskWriters.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.grpcclient.compression;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Codec;
+import io.grpc.CompressorRegistry;
+import io.grpc.DecompressorRegistry;
+import io.grpc.MethodDescriptor;
+
+import java.util.List;
+
+/**
+ * Message codecs known to the client: gzip (built into gRPC), zstd and lz4, plus identity.
+ *
+ * The decompressor registry advertises all of them in {@code grpc-accept-encoding}, so the server may
+ * compress replies with any codec it also supports. The server must register the same encoding names
+ * to accept compressed requests.
+ */
+public final class MessageCompression {
+
+    public static final String IDENTITY = Codec.Identity.NONE.getMessageEncoding();
+
+    private static final List<Codec> CODECS = List.of(new Codec.Gzip(), new ZstdCodec(), new Lz4Codec());
+
+    private MessageCompression() {
+    }
+
+    public static List<String> encodings() {
+        return CODECS.stream().map(Codec::getMessageEncoding).toList();
+    }
+
+    public static CompressorRegistry compressorRegistry() {
+        CompressorRegistry registry = CompressorRegistry.newEmptyInstance();
+        registry.register(Codec.Identity.NONE);
+        CODECS.forEach(registry::register);
+        return registry;
+    }
+
+    public static DecompressorRegistry decompressorRegistry() {
+        DecompressorRegistry registry = DecompressorRegistry.emptyInstance().with(Codec.Identity.NONE, false);
+        for (Codec codec : CODECS) {
+            registry = registry.with(codec, true);
+        }
+        return registry;
+    }
+
+    public static Codec codec(String encoding) {
+        return CODECS.stream()
+                .filter(codec -> codec.getMessageEncoding().equals(encoding))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Unknown compression '" + encoding + "', expected " + IDENTITY + " or one of " + encodings()));
+    }
+
+    /**
+     * Compresses every request with {@code encoding}, unless the call already chose a compressor.
+     * Replies are compressed only if the server chooses to.
+     */
+    public static ClientInterceptor defaultCompression(String encoding) {
+        codec(encoding);
+        return new ClientInterceptor() {
+            @Override
+            public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+                    MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+                CallOptions options = callOptions.getCompressor() == null ? callOptions.withCompression(encoding) : callOptions;
+                return next.newCall(method, options);
+            }
+        };
+    }
+}
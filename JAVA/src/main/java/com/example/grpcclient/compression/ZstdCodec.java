@@ -0,0 +1,44 @@
+package com.example.grpcclient.compression;
+
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+import io.grpc.Codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Zstandard message encoding. Close to gzip's ratio on PDFs at a fraction of the CPU; every message
+ * is a self-contained zstd frame.
+ */
+public class ZstdCodec implements Codec {
+
+    public static final String ENCODING = "zstd";
+    public static final int DEFAULT_LEVEL = 3;
+
+    private final int level;
+
+    public ZstdCodec() {
+        this(DEFAULT_LEVEL);
+    }
+
+    public ZstdCodec(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public String getMessageEncoding() {
+        return ENCODING;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream os) throws IOException {
+        return new ZstdOutputStreamNoFinalizer(os, level);
+    }
+
+    @Override
+    public InputStream decompress(InputStream is) throws IOException {
+        return new ZstdInputStreamNoFinalizer(is);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.grpcclient.config;
+
+import com.example.grpcclient.proto.MakePDFGrpc;
+import io.grpc.ManagedChannel;
+
+import java.util.List;
+
+/**
+ * Fixed set of channels to the PDF service. Every channel owns its own HTTP/2
+ * connection (and therefore its own Netty event loop), so spreading streams
+ * across the pool lifts the single-connection ceiling.
+ */
+public class ChannelPool {
+
+    private final List<ManagedChannel> channels;
+    private final List<MakePDFGrpc.MakePDFStub> asyncStubs;
+
+    public ChannelPool(List<ManagedChannel> channels) {
+        if (channels.isEmpty()) {
+            throw new IllegalArgumentException("Channel pool requires at least one channel");
+        }
+        this.channels = List.copyOf(channels);
+        this.asyncStubs = this.channels.stream().map(MakePDFGrpc::newStub).toList();
+    }
+
+    public int size() { return channels.size(); }
+
+    public ManagedChannel channel(int index) { return channels.get(index); }
+
+    public MakePDFGrpc.MakePDFStub asyncStub(int index) { return asyncStubs.get(index); }
+}
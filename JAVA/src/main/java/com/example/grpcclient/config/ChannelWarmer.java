@@ -0,0 +1,64 @@
+package com.example.grpcclient.config;
+
+import com.example.grpcclient.metrics.StartupTimeline;
+import com.example.grpcclient.proto.MakePDFGrpc;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthCheckResponse;
+import io.grpc.health.v1.HealthGrpc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects a channel as soon as it is built instead of on its first call, so name resolution, the
+ * TCP and TLS handshakes and HTTP/2 setup overlap with the rest of startup and with CSV loading.
+ *
+ * A health check then makes one round trip over the new connection, which also loads the classes of
+ * the call path. It waits for the connection rather than failing fast, and a server without the
+ * health service answers {@code UNIMPLEMENTED}, which counts as warm. Nothing waits for the warm-up:
+ * a failure only means the first real call connects, as it would have anyway.
+ */
+final class ChannelWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChannelWarmer.class);
+
+    private ChannelWarmer() {
+    }
+
+    static void warm(ManagedChannel channel, long timeoutMs, StartupTimeline startup) {
+        long warmStart = System.nanoTime();
+        channel.getState(true);
+        var check = HealthGrpc.newFutureStub(channel)
+                .withWaitForReady()
+                .withDeadlineAfter(timeoutMs, TimeUnit.MILLISECONDS)
+                .check(HealthCheckRequest.newBuilder().setService(MakePDFGrpc.SERVICE_NAME).build());
+        Futures.addCallback(check, new FutureCallback<>() {
+            @Override
+            public void onSuccess(HealthCheckResponse response) {
+                warmed();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                Status status = Status.fromThrowable(t);
+                if (status.getCode() == Status.Code.UNIMPLEMENTED || status.getCode() == Status.Code.NOT_FOUND) {
+                    warmed();
+                } else {
+                    logger.warn("Channel pre-warm to {} failed: {}", channel.authority(), status);
+                }
+            }
+
+            private void warmed() {
+                startup.reached(StartupTimeline.Phase.CHANNEL_READY);
+                logger.debug("Channel to {} warm after {} ms", channel.authority(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - warmStart));
+            }
+        }, MoreExecutors.directExecutor());
+    }
+}
@@ -1,9 +1,39 @@
 package com.example.grpcclient.config;
 
+import com.example.grpcclient.balancer.FleetEndpoints;
+import com.example.grpcclient.compression.MessageCompression;
+import com.example.grpcclient.util.ProgressBar;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.List;
+
 @ConfigurationProperties(prefix = "grpc.client")
 public class GrpcClientProperties {
+
+    private static final long DEFAULT_RESPONSE_BUFFER_BYTES = 256L * 1024 * 1024;
+    private static final int DEFAULT_INGEST_CHUNK_BYTES = 16 * 1024 * 1024;
+    private static final long DEFAULT_PACK_SEGMENT_BYTES = 1024L * 1024 * 1024;
+    private static final long DEFAULT_CACHE_MEMORY_BYTES = 256L * 1024 * 1024;
+    private static final long DEFAULT_BATCH_MAX_REPLY_BYTES = 4L * 1024 * 1024;
+    private static final String DEFAULT_METRICS_PROMETHEUS_HOST = "127.0.0.1";
+
+    /** Which RPC the batch run uses to generate PDFs. */
+    public enum CallMode {
+        /** StreamPDFs bi-directional streams. */
+        STREAMING,
+        /** Individual GeneratePDF calls under an adaptive concurrency limit. */
+        UNARY,
+        /** GeneratePDFBatch bi-directional streams, several rows per message. */
+        BATCHED
+    }
+
+    /** How PDFs are laid out under the output path. */
+    public enum OutputFormat {
+        /** One {@code pdf_<UUID>.pdf} file per reply. */
+        FILES,
+        /** Rolling {@code .pack} segments with an {@code .idx} index each. */
+        PACK
+    }
     
     private String serviceUrl;
     private String outputPath;
@@ -11,13 +41,108 @@ public class GrpcClientProperties {
     private boolean showEnhancedProgressBar;
     private int channelCapacity;
     private int maxDegreeOfParallelism;
-    private int progressUpdateThreshold;
+    private int channelPoolSize;
+    private long responseBufferBytes;
+    private String inputPath;
+    private int ingestParallelism;
+    private int ingestChunkBytes;
+    private OutputFormat outputFormat;
+    private long packSegmentBytes;
+    private boolean cacheEnabled;
+    private String cachePath;
+    private long cacheMemoryBytes;
+    private CallMode callMode;
+    private int unaryInitialConcurrency;
+    private int unaryMaxConcurrency;
+    private boolean journalEnabled;
+    private String journalPath;
+    private long journalSyncIntervalMs;
+    private int journalSyncBatch;
+    private int streamReconnectAttempts;
+    private long streamReconnectBackoffMs;
+    private boolean metricsEnabled;
+    private int metricsPrometheusPort;
+    private String metricsPrometheusHost;
+    private String metricsPrometheusFile;
+    private boolean metricsJmxEnabled;
+    private ProgressBar.Format progressFormat;
+    private long progressIntervalMs;
+    private String compression;
+    private TransportProfile.Transport transport;
+    private int eventLoopThreads;
+    private TransportProfile.CallbackExecutor callbackExecutor;
+    private int callbackThreads;
+    private int flowControlWindowBytes;
+    private boolean flowControlAutoTune;
+    private TransportProfile.BufferAllocator bufferAllocator;
+    private boolean pooledReplyBuffers;
+    private int batchMaxRows;
+    private int batchMaxBytes;
+    private long batchMaxReplyBytes;
+    private long batchLingerMicros;
+    private int reactivePrefetch;
+    private int multiplexStreams;
+    private int multiplexMaxInFlight;
+    private boolean runOnStartup;
+    private int jobMaxInFlight;
+    private List<String> serviceUrls;
+    private String endpointsFile;
+    private long endpointsRefreshMs;
+    private FleetEndpoints.Policy loadBalancing;
+    private long healthCheckIntervalMs;
+    private long healthCheckTimeoutMs;
+    private double slowEjectionFactor;
+    private long ejectionTimeMs;
+    private boolean prewarmChannels;
+    private long prewarmTimeoutMs;
+    private boolean autotune;
+    private long autotuneIntervalMs;
+    private int autotuneMaxWriters;
 
     public GrpcClientProperties() {
         // Default constructor for Spring
         this.channelCapacity = 1000;
         this.maxDegreeOfParallelism = Runtime.getRuntime().availableProcessors();
-        this.progressUpdateThreshold = 10;
+        this.channelPoolSize = 1;
+        this.responseBufferBytes = DEFAULT_RESPONSE_BUFFER_BYTES;
+        this.ingestParallelism = Runtime.getRuntime().availableProcessors();
+        this.ingestChunkBytes = DEFAULT_INGEST_CHUNK_BYTES;
+        this.outputFormat = OutputFormat.FILES;
+        this.packSegmentBytes = DEFAULT_PACK_SEGMENT_BYTES;
+        this.cacheMemoryBytes = DEFAULT_CACHE_MEMORY_BYTES;
+        this.callMode = CallMode.STREAMING;
+        this.unaryInitialConcurrency = 16;
+        this.unaryMaxConcurrency = 1024;
+        this.journalSyncIntervalMs = 200;
+        this.journalSyncBatch = 1000;
+        this.streamReconnectAttempts = 5;
+        this.streamReconnectBackoffMs = 200;
+        this.metricsEnabled = true;
+        this.progressFormat = ProgressBar.Format.AUTO;
+        this.progressIntervalMs = 250;
+        this.transport = TransportProfile.Transport.AUTO;
+        this.callbackExecutor = TransportProfile.CallbackExecutor.DEFAULT;
+        this.flowControlAutoTune = true;
+        this.bufferAllocator = TransportProfile.BufferAllocator.DEFAULT;
+        this.batchMaxRows = 256;
+        this.batchMaxBytes = 64 * 1024;
+        this.batchMaxReplyBytes = DEFAULT_BATCH_MAX_REPLY_BYTES;
+        this.batchLingerMicros = 2000;
+        this.reactivePrefetch = 64;
+        this.multiplexStreams = 2;
+        this.multiplexMaxInFlight = 10_000;
+        this.runOnStartup = true;
+        this.jobMaxInFlight = 256;
+        this.endpointsRefreshMs = 5000;
+        this.loadBalancing = FleetEndpoints.Policy.LEAST_OUTSTANDING;
+        this.healthCheckIntervalMs = 5000;
+        this.healthCheckTimeoutMs = 1000;
+        this.slowEjectionFactor = 3.0;
+        this.ejectionTimeMs = 30_000;
+        this.prewarmChannels = true;
+        this.prewarmTimeoutMs = 10_000;
+        this.autotuneIntervalMs = 2000;
+        this.autotuneMaxWriters = 64;
     }
 
     // Getters
@@ -33,7 +158,103 @@ public class GrpcClientProperties {
     public int maxDegreeOfParallelism() { 
         return maxDegreeOfParallelism <= 0 ? Runtime.getRuntime().availableProcessors() : maxDegreeOfParallelism; 
     }
-    public int progressUpdateThreshold() { return progressUpdateThreshold <= 0 ? 10 : progressUpdateThreshold; }
+    public int channelPoolSize() { return channelPoolSize <= 0 ? 1 : channelPoolSize; }
+    public long responseBufferBytes() { return responseBufferBytes <= 0 ? DEFAULT_RESPONSE_BUFFER_BYTES : responseBufferBytes; }
+    public String inputPath() {
+        return (inputPath == null || inputPath.trim().isEmpty()) ? "./names.csv" : inputPath;
+    }
+    public int ingestParallelism() {
+        return ingestParallelism <= 0 ? Runtime.getRuntime().availableProcessors() : ingestParallelism;
+    }
+    public int ingestChunkBytes() { return ingestChunkBytes <= 0 ? DEFAULT_INGEST_CHUNK_BYTES : ingestChunkBytes; }
+    public boolean cacheEnabled() { return cacheEnabled; }
+    public String cachePath() {
+        return (cachePath == null || cachePath.trim().isEmpty())
+                ? System.getProperty("user.dir") + "/.pdf-cache"
+                : cachePath;
+    }
+    public long cacheMemoryBytes() { return cacheMemoryBytes <= 0 ? DEFAULT_CACHE_MEMORY_BYTES : cacheMemoryBytes; }
+    public CallMode callMode() { return callMode == null ? CallMode.STREAMING : callMode; }
+    public int unaryInitialConcurrency() { return unaryInitialConcurrency <= 0 ? 16 : unaryInitialConcurrency; }
+    public int unaryMaxConcurrency() {
+        return Math.max(unaryInitialConcurrency(), unaryMaxConcurrency <= 0 ? 1024 : unaryMaxConcurrency);
+    }
+    public boolean journalEnabled() { return journalEnabled; }
+    public String journalPath() {
+        return (journalPath == null || journalPath.trim().isEmpty())
+                ? outputPath() + "/.completed-rows.journal"
+                : journalPath;
+    }
+    public long journalSyncIntervalMs() { return journalSyncIntervalMs <= 0 ? 200 : journalSyncIntervalMs; }
+    public int journalSyncBatch() { return journalSyncBatch <= 0 ? 1000 : journalSyncBatch; }
+    public int streamReconnectAttempts() { return Math.max(0, streamReconnectAttempts); }
+    public long streamReconnectBackoffMs() { return streamReconnectBackoffMs <= 0 ? 200 : streamReconnectBackoffMs; }
+    public boolean metricsEnabled() { return metricsEnabled; }
+    public int metricsPrometheusPort() { return Math.max(0, metricsPrometheusPort); }
+    public String metricsPrometheusHost() {
+        return (metricsPrometheusHost == null || metricsPrometheusHost.isBlank())
+                ? DEFAULT_METRICS_PROMETHEUS_HOST
+                : metricsPrometheusHost.trim();
+    }
+    public String metricsPrometheusFile() { return metricsPrometheusFile == null ? "" : metricsPrometheusFile.trim(); }
+    public boolean metricsJmxEnabled() { return metricsJmxEnabled; }
+    public ProgressBar.Format progressFormat() { return progressFormat == null ? ProgressBar.Format.AUTO : progressFormat; }
+    public long progressIntervalMs() { return progressIntervalMs <= 0 ? 250 : progressIntervalMs; }
+    public String compression() {
+        return (compression == null || compression.trim().isEmpty())
+                ? MessageCompression.IDENTITY
+                : compression.trim().toLowerCase();
+    }
+    public TransportProfile.Transport transport() {
+        return transport == null ? TransportProfile.Transport.AUTO : transport;
+    }
+    public int eventLoopThreads() { return Math.max(0, eventLoopThreads); }
+    public TransportProfile.CallbackExecutor callbackExecutor() {
+        return callbackExecutor == null ? TransportProfile.CallbackExecutor.DEFAULT : callbackExecutor;
+    }
+    public int callbackThreads() {
+        return callbackThreads <= 0 ? Runtime.getRuntime().availableProcessors() : callbackThreads;
+    }
+    public int flowControlWindowBytes() { return Math.max(0, flowControlWindowBytes); }
+    public boolean flowControlAutoTune() { return flowControlAutoTune; }
+    public TransportProfile.BufferAllocator bufferAllocator() {
+        return bufferAllocator == null ? TransportProfile.BufferAllocator.DEFAULT : bufferAllocator;
+    }
+    public boolean pooledReplyBuffers() { return pooledReplyBuffers; }
+    public int batchMaxRows() { return batchMaxRows <= 0 ? 256 : batchMaxRows; }
+    public int batchMaxBytes() { return batchMaxBytes <= 0 ? 64 * 1024 : batchMaxBytes; }
+    public long batchMaxReplyBytes() {
+        // A reply batch lands whole, so it must also fit the response byte budget
+        return Math.min(batchMaxReplyBytes <= 0 ? DEFAULT_BATCH_MAX_REPLY_BYTES : batchMaxReplyBytes, responseBufferBytes());
+    }
+    public long batchLingerMicros() { return batchLingerMicros <= 0 ? 2000 : batchLingerMicros; }
+    public int reactivePrefetch() { return reactivePrefetch <= 0 ? 64 : reactivePrefetch; }
+    public int multiplexStreams() { return multiplexStreams <= 0 ? 2 : multiplexStreams; }
+    public int multiplexMaxInFlight() { return multiplexMaxInFlight <= 0 ? 10_000 : multiplexMaxInFlight; }
+    public boolean runOnStartup() { return runOnStartup; }
+    public int jobMaxInFlight() { return jobMaxInFlight <= 0 ? 256 : jobMaxInFlight; }
+    public List<String> serviceUrls() {
+        return serviceUrls == null ? List.of() : serviceUrls.stream().map(String::trim).filter(url -> !url.isEmpty()).toList();
+    }
+    public String endpointsFile() { return endpointsFile == null ? "" : endpointsFile.trim(); }
+    public long endpointsRefreshMs() { return endpointsRefreshMs <= 0 ? 5000 : endpointsRefreshMs; }
+    public FleetEndpoints.Policy loadBalancing() {
+        return loadBalancing == null ? FleetEndpoints.Policy.LEAST_OUTSTANDING : loadBalancing;
+    }
+    public long healthCheckIntervalMs() { return Math.max(0, healthCheckIntervalMs); }
+    public long healthCheckTimeoutMs() { return healthCheckTimeoutMs <= 0 ? 1000 : healthCheckTimeoutMs; }
+    public double slowEjectionFactor() { return Math.max(0, slowEjectionFactor); }
+    public long ejectionTimeMs() { return ejectionTimeMs <= 0 ? 30_000 : ejectionTimeMs; }
+    public boolean prewarmChannels() { return prewarmChannels; }
+    public long prewarmTimeoutMs() { return prewarmTimeoutMs <= 0 ? 10_000 : prewarmTimeoutMs; }
+    public boolean autotune() { return autotune; }
+    public long autotuneIntervalMs() { return autotuneIntervalMs <= 0 ? 2000 : autotuneIntervalMs; }
+    public int autotuneMaxWriters() { return Math.max(autotuneMaxWriters, maxDegreeOfParallelism()); }
+    public OutputFormat outputFormat() { return outputFormat == null ? OutputFormat.FILES : outputFormat; }
+    public long packSegmentBytes() {
+        // Segments are memory-mapped whole by PackReader, so they must stay below 2 GB
+        return packSegmentBytes <= 0 ? DEFAULT_PACK_SEGMENT_BYTES : Math.min(packSegmentBytes, Integer.MAX_VALUE);
+    }
 
     // Setters for Spring property binding
     public void setServiceUrl(String serviceUrl) { this.serviceUrl = serviceUrl; }
@@ -42,5 +263,61 @@ public class GrpcClientProperties {
     public void setShowEnhancedProgressBar(boolean showEnhancedProgressBar) { this.showEnhancedProgressBar = showEnhancedProgressBar; }
     public void setChannelCapacity(int channelCapacity) { this.channelCapacity = channelCapacity; }
     public void setMaxDegreeOfParallelism(int maxDegreeOfParallelism) { this.maxDegreeOfParallelism = maxDegreeOfParallelism; }
-    public void setProgressUpdateThreshold(int progressUpdateThreshold) { this.progressUpdateThreshold = progressUpdateThreshold; }
+    public void setChannelPoolSize(int channelPoolSize) { this.channelPoolSize = channelPoolSize; }
+    public void setResponseBufferBytes(long responseBufferBytes) { this.responseBufferBytes = responseBufferBytes; }
+    public void setInputPath(String inputPath) { this.inputPath = inputPath; }
+    public void setIngestParallelism(int ingestParallelism) { this.ingestParallelism = ingestParallelism; }
+    public void setIngestChunkBytes(int ingestChunkBytes) { this.ingestChunkBytes = ingestChunkBytes; }
+    public void setOutputFormat(OutputFormat outputFormat) { this.outputFormat = outputFormat; }
+    public void setPackSegmentBytes(long packSegmentBytes) { this.packSegmentBytes = packSegmentBytes; }
+    public void setCacheEnabled(boolean cacheEnabled) { this.cacheEnabled = cacheEnabled; }
+    public void setCachePath(String cachePath) { this.cachePath = cachePath; }
+    public void setCacheMemoryBytes(long cacheMemoryBytes) { this.cacheMemoryBytes = cacheMemoryBytes; }
+    public void setCallMode(CallMode callMode) { this.callMode = callMode; }
+    public void setUnaryInitialConcurrency(int unaryInitialConcurrency) { this.unaryInitialConcurrency = unaryInitialConcurrency; }
+    public void setUnaryMaxConcurrency(int unaryMaxConcurrency) { this.unaryMaxConcurrency = unaryMaxConcurrency; }
+    public void setJournalEnabled(boolean journalEnabled) { this.journalEnabled = journalEnabled; }
+    public void setJournalPath(String journalPath) { this.journalPath = journalPath; }
+    public void setJournalSyncIntervalMs(long journalSyncIntervalMs) { this.journalSyncIntervalMs = journalSyncIntervalMs; }
+    public void setJournalSyncBatch(int journalSyncBatch) { this.journalSyncBatch = journalSyncBatch; }
+    public void setStreamReconnectAttempts(int streamReconnectAttempts) { this.streamReconnectAttempts = streamReconnectAttempts; }
+    public void setStreamReconnectBackoffMs(long streamReconnectBackoffMs) { this.streamReconnectBackoffMs = streamReconnectBackoffMs; }
+    public void setMetricsEnabled(boolean metricsEnabled) { this.metricsEnabled = metricsEnabled; }
+    public void setMetricsPrometheusPort(int metricsPrometheusPort) { this.metricsPrometheusPort = metricsPrometheusPort; }
+    public void setMetricsPrometheusHost(String metricsPrometheusHost) { this.metricsPrometheusHost = metricsPrometheusHost; }
+    public void setMetricsPrometheusFile(String metricsPrometheusFile) { this.metricsPrometheusFile = metricsPrometheusFile; }
+    public void setMetricsJmxEnabled(boolean metricsJmxEnabled) { this.metricsJmxEnabled = metricsJmxEnabled; }
+    public void setProgressFormat(ProgressBar.Format progressFormat) { this.progressFormat = progressFormat; }
+    public void setProgressIntervalMs(long progressIntervalMs) { this.progressIntervalMs = progressIntervalMs; }
+    public void setCompression(String compression) { this.compression = compression; }
+    public void setTransport(TransportProfile.Transport transport) { this.transport = transport; }
+    public void setEventLoopThreads(int eventLoopThreads) { this.eventLoopThreads = eventLoopThreads; }
+    public void setCallbackExecutor(TransportProfile.CallbackExecutor callbackExecutor) { this.callbackExecutor = callbackExecutor; }
+    public void setCallbackThreads(int callbackThreads) { this.callbackThreads = callbackThreads; }
+    public void setFlowControlWindowBytes(int flowControlWindowBytes) { this.flowControlWindowBytes = flowControlWindowBytes; }
+    public void setFlowControlAutoTune(boolean flowControlAutoTune) { this.flowControlAutoTune = flowControlAutoTune; }
+    public void setBufferAllocator(TransportProfile.BufferAllocator bufferAllocator) { this.bufferAllocator = bufferAllocator; }
+    public void setPooledReplyBuffers(boolean pooledReplyBuffers) { this.pooledReplyBuffers = pooledReplyBuffers; }
+    public void setBatchMaxRows(int batchMaxRows) { this.batchMaxRows = batchMaxRows; }
+    public void setBatchMaxBytes(int batchMaxBytes) { this.batchMaxBytes = batchMaxBytes; }
+    public void setBatchMaxReplyBytes(long batchMaxReplyBytes) { this.batchMaxReplyBytes = batchMaxReplyBytes; }
+    public void setBatchLingerMicros(long batchLingerMicros) { this.batchLingerMicros = batchLingerMicros; }
+    public void setReactivePrefetch(int reactivePrefetch) { this.reactivePrefetch = reactivePrefetch; }
+    public void setMultiplexStreams(int multiplexStreams) { this.multiplexStreams = multiplexStreams; }
+    public void setMultiplexMaxInFlight(int multiplexMaxInFlight) { this.multiplexMaxInFlight = multiplexMaxInFlight; }
+    public void setRunOnStartup(boolean runOnStartup) { this.runOnStartup = runOnStartup; }
+    public void setJobMaxInFlight(int jobMaxInFlight) { this.jobMaxInFlight = jobMaxInFlight; }
+    public void setServiceUrls(List<String> serviceUrls) { this.serviceUrls = serviceUrls; }
+    public void setEndpointsFile(String endpointsFile) { this.endpointsFile = endpointsFile; }
+    public void setEndpointsRefreshMs(long endpointsRefreshMs) { this.endpointsRefreshMs = endpointsRefreshMs; }
+    public void setLoadBalancing(FleetEndpoints.Policy loadBalancing) { this.loadBalancing = loadBalancing; }
+    public void setHealthCheckIntervalMs(long healthCheckIntervalMs) { this.healthCheckIntervalMs = healthCheckIntervalMs; }
+    public void setHealthCheckTimeoutMs(long healthCheckTimeoutMs) { this.healthCheckTimeoutMs = healthCheckTimeoutMs; }
+    public void setSlowEjectionFactor(double slowEjectionFactor) { this.slowEjectionFactor = slowEjectionFactor; }
+    public void setEjectionTimeMs(long ejectionTimeMs) { this.ejectionTimeMs = ejectionTimeMs; }
+    public void setPrewarmChannels(boolean prewarmChannels) { this.prewarmChannels = prewarmChannels; }
+    public void setPrewarmTimeoutMs(long prewarmTimeoutMs) { this.prewarmTimeoutMs = prewarmTimeoutMs; }
+    public void setAutotune(boolean autotune) { this.autotune = autotune; }
+    public void setAutotuneIntervalMs(long autotuneIntervalMs) { this.autotuneIntervalMs = autotuneIntervalMs; }
+    public void setAutotuneMaxWriters(int autotuneMaxWriters) { this.autotuneMaxWriters = autotuneMaxWriters; }
 }
\ No newline at end of file
@@ -1,56 +1,182 @@
 package com.example.grpcclient.config;
 
+import com.example.grpcclient.balancer.FleetEndpoints;
+import com.example.grpcclient.compression.MessageCompression;
+import com.example.grpcclient.marshal.PooledReplyMarshaller;
+import com.example.grpcclient.metrics.PipelineMetrics;
+import com.example.grpcclient.metrics.StartupTimeline;
+import com.example.grpcclient.metrics.TrafficMetricsInterceptor;
 import com.example.grpcclient.proto.MakePDFGrpc;
+import com.example.grpcclient.util.DirectBufferPool;
+import io.grpc.ClientInterceptor;
 import io.grpc.ManagedChannel;
 import io.grpc.netty.shaded.io.grpc.netty.GrpcSslContexts;
 import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
 import io.grpc.netty.shaded.io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import javax.net.ssl.SSLException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableConfigurationProperties(GrpcClientProperties.class)
 public class GrpcConfiguration {
 
+    private static final Logger logger = LoggerFactory.getLogger(GrpcConfiguration.class);
+
+    /** Largest message the client's channels accept. */
+    public static final int MAX_INBOUND_MESSAGE_BYTES = 32 * 1024 * 1024;
+
     private final GrpcClientProperties properties;
+    private final TrafficMetricsInterceptor trafficMetrics;
+    // Compresses requests only; whether replies are compressed is up to the server
+    private final ClientInterceptor compression;
+    private final TransportProfile transportProfile;
+    private final ClientInterceptor pooledReplies;
+    private final FleetEndpoints fleetEndpoints;
+    private final StartupTimeline startup;
 
-    public GrpcConfiguration(GrpcClientProperties properties) {
+    public GrpcConfiguration(GrpcClientProperties properties, MeterRegistry meterRegistry,
+                             TransportProfile transportProfile, PooledReplyMarshaller replyMarshaller,
+                             FleetEndpoints fleetEndpoints, PipelineMetrics metrics) {
         this.properties = properties;
+        this.startup = metrics.startup();
+        this.transportProfile = transportProfile;
+        this.fleetEndpoints = fleetEndpoints;
+        this.pooledReplies = properties.pooledReplyBuffers() ? replyMarshaller.interceptor() : null;
+        this.trafficMetrics = properties.metricsEnabled() ? new TrafficMetricsInterceptor(meterRegistry) : null;
+        this.compression = MessageCompression.IDENTITY.equals(properties.compression())
+                ? null
+                : MessageCompression.defaultCompression(properties.compression());
+        if (properties.callMode() == GrpcClientProperties.CallMode.BATCHED) {
+            validateBatching(properties);
+        }
+    }
+
+    /**
+     * Fails fast on batch sizes that would get a GeneratePDFBatch call failed with RESOURCE_EXHAUSTED
+     * mid-run rather than at startup.
+     */
+    private static void validateBatching(GrpcClientProperties properties) {
+        if (properties.batchMaxBytes() >= MAX_INBOUND_MESSAGE_BYTES) {
+            // The server's limit is usually no larger than ours, and a batch can overshoot by one row
+            throw new IllegalArgumentException(String.format(
+                    "grpc.client.batch-max-bytes (%,d) must be below the %,d byte message limit",
+                    properties.batchMaxBytes(), MAX_INBOUND_MESSAGE_BYTES));
+        }
+        if (properties.batchMaxReplyBytes() > MAX_INBOUND_MESSAGE_BYTES) {
+            throw new IllegalArgumentException(String.format(
+                    "grpc.client.batch-max-reply-bytes (%,d) must not exceed the %,d byte message limit",
+                    properties.batchMaxReplyBytes(), MAX_INBOUND_MESSAGE_BYTES));
+        }
+        long perRow = MAX_INBOUND_MESSAGE_BYTES / properties.batchMaxRows();
+        if (perRow < 1024 * 1024) {
+            logger.info("A server that ignores maxReplyBytes can only answer full batches of {} rows with PDFs "
+                    + "under {} KB each; lower batch-max-rows if PDFs may be larger", properties.batchMaxRows(), perRow / 1024);
+        }
+    }
+
+    @Bean(destroyMethod = "close")
+    public static TransportProfile transportProfile(GrpcClientProperties properties) {
+        return TransportProfile.from(properties);
+    }
+
+    /**
+     * Always present so the service can release replies unconditionally; it only parses replies when
+     * {@code pooled-reply-buffers} installs it on the channels. Idle buffers are capped at the
+     * response buffer budget, the most reply bytes the pipeline holds at once.
+     */
+    @Bean
+    public static PooledReplyMarshaller replyMarshaller(GrpcClientProperties properties) {
+        return new PooledReplyMarshaller(new DirectBufferPool(properties.responseBufferBytes()));
+    }
+
+    /**
+     * Always present; inert unless {@code service-urls} or {@code endpoints-file} lists a fleet.
+     * Health probes get plain channels of their own, without the pipeline's interceptors.
+     */
+    @Bean(destroyMethod = "close")
+    public static FleetEndpoints fleetEndpoints(GrpcClientProperties properties) {
+        FleetEndpoints fleet = new FleetEndpoints(properties, endpoint -> {
+            try {
+                return withSecurity(NettyChannelBuilder.forAddress(endpoint.host(), endpoint.port()), endpoint.tls())
+                        .build();
+            } catch (SSLException e) {
+                throw new IllegalStateException("Unable to build TLS context for " + endpoint, e);
+            }
+        });
+        fleet.start();
+        return fleet;
     }
 
     @Bean
     public ManagedChannel grpcChannel() throws SSLException {
-        if (properties.serviceUrl() == null || properties.serviceUrl().trim().isEmpty()) {
-            throw new IllegalArgumentException("Service URL is not configured. Please set grpc.client.service-url in application.yml");
+        return buildChannel();
+    }
+
+    @Bean
+    public ChannelPool channelPool(ManagedChannel grpcChannel) throws SSLException {
+        // The primary channel is shared with the stubs; extra channels are only opened in pool mode
+        List<ManagedChannel> channels = new ArrayList<>();
+        channels.add(grpcChannel);
+        for (int i = 1; i < properties.channelPoolSize(); i++) {
+            channels.add(buildChannel());
         }
+        return new ChannelPool(channels);
+    }
 
-        URI serviceUri = URI.create(properties.serviceUrl());
-        boolean isHttps = "https".equals(serviceUri.getScheme());
-        int port = serviceUri.getPort() != -1 ? serviceUri.getPort() : (isHttps ? 443 : 80);
+    private ManagedChannel buildChannel() throws SSLException {
+        NettyChannelBuilder builder;
+        boolean isHttps;
+        if (fleetEndpoints.enabled()) {
+            // One channel spreads its calls over the whole fleet
+            builder = NettyChannelBuilder.forTarget(fleetEndpoints.target())
+                    .defaultLoadBalancingPolicy(fleetEndpoints.policyName());
+            isHttps = fleetEndpoints.tls();
+        } else {
+            if (properties.serviceUrl() == null || properties.serviceUrl().trim().isEmpty()) {
+                throw new IllegalArgumentException("Service URL is not configured. Please set grpc.client.service-url in application.yml");
+            }
+
+            URI serviceUri = URI.create(properties.serviceUrl());
+            isHttps = "https".equals(serviceUri.getScheme());
+            int port = serviceUri.getPort() != -1 ? serviceUri.getPort() : (isHttps ? 443 : 80);
+            builder = NettyChannelBuilder.forAddress(serviceUri.getHost(), port);
+        }
 
-        NettyChannelBuilder builder = NettyChannelBuilder
-                .forAddress(serviceUri.getHost(), port)
+        builder = builder
                 .keepAliveTime(30, TimeUnit.SECONDS)
                 .keepAliveTimeout(10, TimeUnit.SECONDS)
                 .keepAliveWithoutCalls(true)
-                .maxInboundMessageSize(32 * 1024 * 1024) // 32MB max message size
-                .usePlaintext();
-
-        if (isHttps) {
-            // Configure SSL context to ignore certificate validation (similar to .NET implementation)
-            builder = builder
-                    .sslContext(GrpcSslContexts.forClient()
-                            .trustManager(InsecureTrustManagerFactory.INSTANCE)
-                            .build())
-                    .useTransportSecurity();
+                .maxInboundMessageSize(MAX_INBOUND_MESSAGE_BYTES)
+                .compressorRegistry(MessageCompression.compressorRegistry())
+                .decompressorRegistry(MessageCompression.decompressorRegistry());
+        builder = withSecurity(builder, isHttps);
+        builder = transportProfile.apply(builder);
+        if (pooledReplies != null) {
+            builder = builder.intercept(pooledReplies);
+        }
+        if (compression != null) {
+            builder = builder.intercept(compression);
         }
+        if (trafficMetrics != null) {
+            builder = builder.intercept(trafficMetrics);
+        }
+        builder = builder.intercept(startup.interceptor());
 
         ManagedChannel channel = builder.build();
+        if (properties.prewarmChannels()) {
+            // Connects in the background while the rest of the context starts and the CSV loads
+            ChannelWarmer.warm(channel, properties.prewarmTimeoutMs(), startup);
+        }
         
         // Register shutdown hook
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -67,6 +193,18 @@ public class GrpcConfiguration {
         return channel;
     }
 
+    private static NettyChannelBuilder withSecurity(NettyChannelBuilder builder, boolean isHttps) throws SSLException {
+        if (!isHttps) {
+            return builder.usePlaintext();
+        }
+        // Configure SSL context to ignore certificate validation (similar to .NET implementation)
+        return builder
+                .sslContext(GrpcSslContexts.forClient()
+                        .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                        .build())
+                .useTransportSecurity();
+    }
+
     @Bean
     public MakePDFGrpc.MakePDFBlockingStub makePDFBlockingStub(ManagedChannel channel) {
         return MakePDFGrpc.newBlockingStub(channel);
@@ -76,4 +214,9 @@ public class GrpcConfiguration {
     public MakePDFGrpc.MakePDFStub makePDFAsyncStub(ManagedChannel channel) {
         return MakePDFGrpc.newStub(channel);
     }
+
+    @Bean
+    public MakePDFGrpc.MakePDFFutureStub makePDFFutureStub(ManagedChannel channel) {
+        return MakePDFGrpc.newFutureStub(channel);
+    }
 }
\ No newline at end of file
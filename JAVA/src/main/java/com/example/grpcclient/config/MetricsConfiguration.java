@@ -0,0 +1,46 @@
+package com.example.grpcclient.config;
+
+import com.example.grpcclient.metrics.PrometheusExporter;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.jmx.JmxConfig;
+import io.micrometer.jmx.JmxMeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public PrometheusExporter prometheusExporter(GrpcClientProperties properties) throws IOException {
+        if (!properties.metricsEnabled()) {
+            return PrometheusExporter.disabled();
+        }
+        String file = properties.metricsPrometheusFile();
+        return new PrometheusExporter(properties.metricsPrometheusHost(), properties.metricsPrometheusPort(),
+                file.isEmpty() ? null : Paths.get(file));
+    }
+
+    @Bean(destroyMethod = "close")
+    public MeterRegistry meterRegistry(GrpcClientProperties properties, PrometheusExporter prometheusExporter) {
+        // Without child registries every meter is a no-op, which is what disabled metrics means
+        CompositeMeterRegistry registry = new CompositeMeterRegistry();
+        if (!properties.metricsEnabled()) {
+            return registry;
+        }
+        // Added first so the composite's snapshots, used for the run summary, come from it
+        registry.add(new SimpleMeterRegistry());
+        if (properties.metricsJmxEnabled()) {
+            registry.add(new JmxMeterRegistry(JmxConfig.DEFAULT, Clock.SYSTEM));
+        }
+        if (prometheusExporter.enabled()) {
+            registry.add(prometheusExporter.registry());
+        }
+        return registry;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.grpcclient.config;
+
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.netty.buffer.ByteBufAllocator;
+import io.grpc.netty.shaded.io.netty.buffer.PooledByteBufAllocator;
+import io.grpc.netty.shaded.io.netty.buffer.UnpooledByteBufAllocator;
+import io.grpc.netty.shaded.io.netty.channel.ChannelOption;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.Epoll;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioSocketChannel;
+import io.grpc.netty.shaded.io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Netty transport settings shared by every channel in the pool: event-loop transport and size, where
+ * call callbacks run, the HTTP/2 flow-control window and the buffer allocator.
+ *
+ * With all settings at their defaults the channel builder is left untouched, which means gRPC's shared
+ * event loops (epoll when the native library loads, NIO otherwise), its cached-thread-pool callback
+ * executor, BDP-based window auto-tuning and Netty's pooled allocator. The profile owns any event-loop
+ * group or executor it creates, so it must be closed after the channels using it.
+ */
+public class TransportProfile implements AutoCloseable {
+
+    // gRPC's own default initial window; also the starting point for BDP auto-tuning
+    private static final int DEFAULT_FLOW_CONTROL_WINDOW = 1024 * 1024;
+
+    public enum Transport {
+        /** gRPC's default: epoll when available, NIO otherwise. */
+        AUTO,
+        NIO,
+        EPOLL
+    }
+
+    public enum CallbackExecutor {
+        /** gRPC's shared cached thread pool. */
+        DEFAULT,
+        /** Run callbacks on the event loop; only safe because no callback in this client blocks. */
+        DIRECT,
+        /** A fixed pool of {@code callbackThreads} threads owned by this profile. */
+        DEDICATED
+    }
+
+    public enum BufferAllocator {
+        DEFAULT,
+        POOLED_DIRECT,
+        POOLED_HEAP,
+        UNPOOLED
+    }
+
+    private final Transport transport;
+    private final CallbackExecutor callbackExecutor;
+    private final int flowControlWindowBytes;
+    private final boolean flowControlAutoTune;
+    private final BufferAllocator bufferAllocator;
+    private final ByteBufAllocator allocator;
+    private final EventLoopGroup eventLoopGroup;
+    private final ExecutorService executor;
+
+    public TransportProfile(Transport transport, int eventLoopThreads, CallbackExecutor callbackExecutor,
+                            int callbackThreads, int flowControlWindowBytes, boolean flowControlAutoTune,
+                            BufferAllocator allocator) {
+        this.transport = resolve(transport, eventLoopThreads);
+        this.callbackExecutor = callbackExecutor;
+        this.flowControlWindowBytes = flowControlWindowBytes;
+        this.flowControlAutoTune = flowControlAutoTune;
+        this.bufferAllocator = allocator;
+        this.allocator = switch (allocator) {
+            case DEFAULT -> null;
+            case POOLED_DIRECT -> new PooledByteBufAllocator(true);
+            case POOLED_HEAP -> new PooledByteBufAllocator(false);
+            case UNPOOLED -> new UnpooledByteBufAllocator(true);
+        };
+        // Zero threads lets Netty size the group (twice the core count)
+        this.eventLoopGroup = switch (this.transport) {
+            case AUTO -> null;
+            case NIO -> new NioEventLoopGroup(eventLoopThreads, new DefaultThreadFactory("grpc-nio", true));
+            case EPOLL -> new EpollEventLoopGroup(eventLoopThreads, new DefaultThreadFactory("grpc-epoll", true));
+        };
+        this.executor = callbackExecutor == CallbackExecutor.DEDICATED
+                ? Executors.newFixedThreadPool(callbackThreads, new DefaultThreadFactory("grpc-callback", true))
+                : null;
+    }
+
+    public static TransportProfile from(GrpcClientProperties properties) {
+        return new TransportProfile(
+                properties.transport(),
+                properties.eventLoopThreads(),
+                properties.callbackExecutor(),
+                properties.callbackThreads(),
+                properties.flowControlWindowBytes(),
+                properties.flowControlAutoTune(),
+                properties.bufferAllocator());
+    }
+
+    /**
+     * Applies the profile to a channel builder. Every channel built through the same profile shares its
+     * event loops and callback executor.
+     */
+    public NettyChannelBuilder apply(NettyChannelBuilder builder) {
+        if (eventLoopGroup != null) {
+            builder.eventLoopGroup(eventLoopGroup)
+                    .channelType(transport == Transport.EPOLL ? EpollSocketChannel.class : NioSocketChannel.class);
+        }
+
+        switch (callbackExecutor) {
+            case DIRECT -> builder.directExecutor();
+            case DEDICATED -> builder.executor(executor);
+            case DEFAULT -> { }
+        }
+
+        if (flowControlAutoTune) {
+            if (flowControlWindowBytes > 0) {
+                builder.initialFlowControlWindow(flowControlWindowBytes);
+            }
+        } else {
+            builder.flowControlWindow(flowControlWindowBytes > 0 ? flowControlWindowBytes : DEFAULT_FLOW_CONTROL_WINDOW);
+        }
+
+        if (allocator != null) {
+            builder.withOption(ChannelOption.ALLOCATOR, allocator);
+        }
+        return builder;
+    }
+
+    public Transport transport() {
+        return transport;
+    }
+
+    @Override
+    public void close() {
+        if (eventLoopGroup != null) {
+            eventLoopGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static Transport resolve(Transport transport, int eventLoopThreads) {
+        if (transport == Transport.EPOLL && !Epoll.isAvailable()) {
+            throw new IllegalStateException("Epoll transport requested but unavailable", Epoll.unavailabilityCause());
+        }
+        if (transport == Transport.AUTO && eventLoopThreads > 0) {
+            // Sizing the group means owning it, so pick the transport gRPC would have picked
+            return Epoll.isAvailable() ? Transport.EPOLL : Transport.NIO;
+        }
+        return transport;
+    }
+
+    @Override
+    public String toString() {
+        return "transport=" + transport
+                + ", callbacks=" + callbackExecutor
+                + ", window=" + (flowControlWindowBytes > 0 ? flowControlWindowBytes : "default")
+                + (flowControlAutoTune ? " (auto-tuned)" : " (fixed)")
+                + ", allocator=" + bufferAllocator;
+    }
+}
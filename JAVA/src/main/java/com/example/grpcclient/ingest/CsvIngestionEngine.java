@@ -0,0 +1,337 @@
+package com.example.grpcclient.ingest;
+
+import com.example.grpcclient.proto.GeneratePDFRequest;
+import com.google.protobuf.ByteString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Memory-maps a {@code LastName,FirstName} CSV file, splits it into line-aligned chunks and parses
+ * the chunks in parallel straight from the mapped bytes.
+ *
+ * Fields are trimmed and may be quoted ({@code ""} escapes a quote). Name fields are copied
+ * directly from the mapping into {@link ByteString}s, so no intermediate {@code String} or
+ * {@code char[]} is built per row. A quoted field spanning several lines is not supported because
+ * chunks are split on line boundaries. Rows arrive at the sink in no particular order across chunks.
+ */
+public class CsvIngestionEngine {
+
+    /**
+     * Receives every valid row together with the byte offset its line starts at, which stays stable
+     * between runs over the same file. May block to apply backpressure to the parser threads.
+     */
+    @FunctionalInterface
+    public interface RowSink {
+        void accept(long offset, GeneratePDFRequest request) throws InterruptedException;
+    }
+
+    /**
+     * Told how long each chunk took to parse, not counting the time its rows spent in the sink.
+     */
+    @FunctionalInterface
+    public interface ChunkListener {
+        void chunkParsed(long rows, long parseNanos);
+    }
+
+    private static final int BOUNDARY_SCAN_SIZE = 8192;
+
+    private final int parallelism;
+    private final int chunkBytes;
+    private final ChunkListener chunkListener;
+
+    public CsvIngestionEngine(int parallelism, int chunkBytes) {
+        this(parallelism, chunkBytes, null);
+    }
+
+    public CsvIngestionEngine(int parallelism, int chunkBytes, ChunkListener chunkListener) {
+        this.parallelism = Math.max(1, parallelism);
+        this.chunkBytes = Math.max(BOUNDARY_SCAN_SIZE, chunkBytes);
+        this.chunkListener = chunkListener;
+    }
+
+    /**
+     * Parses {@code path} and hands each row to {@code sink}. Returns the number of rows delivered.
+     */
+    public long ingest(Path path, RowSink sink) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<long[]> chunks = splitIntoChunks(channel);
+            if (chunks.size() == 1) {
+                long[] chunk = chunks.get(0);
+                return parseChunk(channel, chunk[0], chunk[1], sink);
+            }
+
+            try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, chunks.size()))) {
+                List<Future<Long>> futures = new ArrayList<>(chunks.size());
+                for (long[] chunk : chunks) {
+                    Callable<Long> task = () -> parseChunk(channel, chunk[0], chunk[1], sink);
+                    futures.add(executor.submit(task));
+                }
+
+                long rows = 0;
+                try {
+                    for (Future<Long> future : futures) {
+                        rows += future.get();
+                    }
+                } catch (ExecutionException e) {
+                    futures.forEach(f -> f.cancel(true));
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException io) throw io;
+                    if (cause instanceof InterruptedException ie) throw ie;
+                    if (cause instanceof RuntimeException re) throw re;
+                    throw new IOException("CSV chunk parsing failed", cause);
+                } catch (InterruptedException e) {
+                    futures.forEach(f -> f.cancel(true));
+                    throw e;
+                }
+                return rows;
+            }
+        }
+    }
+
+    private List<long[]> splitIntoChunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<long[]> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + chunkBytes, size);
+            if (end < size) {
+                end = nextLineStart(channel, end, size);
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        if (chunks.isEmpty()) {
+            chunks.add(new long[]{0, 0});
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private long parseChunk(FileChannel channel, long start, long end, RowSink sink)
+            throws IOException, InterruptedException {
+        if (end <= start) {
+            return 0;
+        }
+        long startNanos = System.nanoTime();
+        long sinkNanos = 0;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        ChunkParser parser = new ChunkParser(buffer, start);
+        long rows = 0;
+        while (parser.hasMore()) {
+            long lineOffset = parser.lineOffset();
+            ByteString lastName = parser.nextField();
+            ByteString firstName = parser.hasField() ? parser.nextField() : ByteString.EMPTY;
+            parser.skipToNextLine();
+
+            if (lastName.isEmpty() || firstName.isEmpty()) {
+                continue;
+            }
+            GeneratePDFRequest request;
+            try {
+                request = GeneratePDFRequest.newBuilder()
+                        .setLastNameBytes(lastName)
+                        .setFirstNameBytes(firstName)
+                        .build();
+            } catch (IllegalArgumentException invalidUtf8) {
+                continue;
+            }
+            if (chunkListener != null) {
+                // Backpressure from the sink is not parsing time
+                long sinkStart = System.nanoTime();
+                sink.accept(lineOffset, request);
+                sinkNanos += System.nanoTime() - sinkStart;
+            } else {
+                sink.accept(lineOffset, request);
+            }
+            rows++;
+        }
+        if (chunkListener != null) {
+            chunkListener.chunkParsed(rows, System.nanoTime() - startNanos - sinkNanos);
+        }
+        return rows;
+    }
+
+    /**
+     * Cursor over one mapped chunk. Tracks whether the current line still has unread fields.
+     */
+    private static final class ChunkParser {
+        private final ByteBuffer buffer;
+        private final ByteBuffer view;
+        private final long baseOffset;
+        private int pos;
+        private boolean fieldPending;
+
+        ChunkParser(ByteBuffer buffer, long baseOffset) {
+            this.buffer = buffer;
+            this.view = buffer.duplicate();
+            this.baseOffset = baseOffset;
+        }
+
+        boolean hasMore() {
+            // Skip blank lines so they never surface as rows
+            while (pos < buffer.limit()) {
+                byte b = buffer.get(pos);
+                if (b != '\n' && b != '\r') {
+                    fieldPending = true;
+                    return true;
+                }
+                pos++;
+            }
+            return false;
+        }
+
+        long lineOffset() { return baseOffset + pos; }
+
+        boolean hasField() { return fieldPending; }
+
+        ByteString nextField() {
+            int limit = buffer.limit();
+            while (pos < limit && isBlank(buffer.get(pos))) {
+                pos++;
+            }
+
+            ByteString field;
+            if (pos < limit && buffer.get(pos) == '"') {
+                field = readQuoted();
+            } else {
+                int start = pos;
+                while (pos < limit && !isDelimiter(buffer.get(pos))) {
+                    pos++;
+                }
+                int stop = pos;
+                while (stop > start && isBlank(buffer.get(stop - 1))) {
+                    stop--;
+                }
+                field = slice(start, stop);
+            }
+
+            // Consume the separator; a line ending leaves no further fields on this line
+            if (pos < limit && buffer.get(pos) == ',') {
+                pos++;
+            } else {
+                fieldPending = false;
+            }
+            return field;
+        }
+
+        void skipToNextLine() {
+            while (fieldPending) {
+                nextField();
+            }
+            int limit = buffer.limit();
+            while (pos < limit && buffer.get(pos) != '\n') {
+                pos++;
+            }
+            if (pos < limit) {
+                pos++;
+            }
+        }
+
+        private ByteString readQuoted() {
+            int limit = buffer.limit();
+            int start = ++pos;
+            ByteArrayOutputStream unescaped = null;
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+                if (b == '"') {
+                    if (pos + 1 < limit && buffer.get(pos + 1) == '"') {
+                        // Escaped quote: fall back to copying, which only happens for such rare fields
+                        if (unescaped == null) {
+                            unescaped = new ByteArrayOutputStream();
+                        }
+                        appendRange(unescaped, start, pos + 1);
+                        pos += 2;
+                        start = pos;
+                        continue;
+                    }
+                    break;
+                }
+                if (b == '\n') {
+                    break;
+                }
+                pos++;
+            }
+
+            ByteString field;
+            if (unescaped == null) {
+                field = slice(start, pos);
+            } else {
+                appendRange(unescaped, start, pos);
+                field = ByteString.copyFrom(unescaped.toByteArray());
+            }
+            if (pos < limit && buffer.get(pos) == '"') {
+                pos++;
+            }
+            // Ignore anything between the closing quote and the next separator
+            while (pos < limit && !isDelimiter(buffer.get(pos))) {
+                pos++;
+            }
+            return trim(field);
+        }
+
+        private void appendRange(ByteArrayOutputStream out, int from, int to) {
+            for (int i = from; i < to; i++) {
+                out.write(buffer.get(i));
+            }
+        }
+
+        private ByteString slice(int from, int to) {
+            if (from >= to) {
+                return ByteString.EMPTY;
+            }
+            view.clear();
+            view.position(from).limit(to);
+            return ByteString.copyFrom(view);
+        }
+
+        private static ByteString trim(ByteString field) {
+            int start = 0;
+            int stop = field.size();
+            while (start < stop && isBlank(field.byteAt(start))) {
+                start++;
+            }
+            while (stop > start && isBlank(field.byteAt(stop - 1))) {
+                stop--;
+            }
+            return (start == 0 && stop == field.size()) ? field : field.substring(start, stop);
+        }
+
+        private static boolean isBlank(byte b) {
+            return b == ' ' || b == '\t';
+        }
+
+        private static boolean isDelimiter(byte b) {
+            return b == ',' || b == '\n' || b == '\r';
+        }
+    }
+}
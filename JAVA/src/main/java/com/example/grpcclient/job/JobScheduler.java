@@ -0,0 +1,298 @@
+package com.example.grpcclient.job;
+
+import com.example.grpcclient.config.GrpcClientProperties;
+import com.example.grpcclient.ingest.CsvIngestionEngine;
+import com.example.grpcclient.metrics.PipelineMetrics;
+import com.example.grpcclient.output.FilePerPdfSink;
+import com.example.grpcclient.output.PackFileSink;
+import com.example.grpcclient.output.PdfSink;
+import com.example.grpcclient.proto.GeneratePDFReply;
+import com.example.grpcclient.proto.GeneratePDFRequest;
+import com.example.grpcclient.service.MultiplexedPdfClient;
+import com.example.grpcclient.util.WeightedFairQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs any number of CSV jobs at once over shared network and disk resources.
+ *
+ * Each job has its own loader, output and counters, so jobs never see each other's state. Rows from
+ * all jobs go through one send queue and replies through one write queue, both
+ * {@link WeightedFairQueue}s with a flow per job weighted by its priority: rows are sent in fair order
+ * (one unit per row) and PDFs written in fair order (one unit per byte), so a giant job gets no more
+ * than its share of either while smaller jobs are backlogged. Sends go over the shared streams of the
+ * {@link MultiplexedPdfClient}. At most {@code job-max-in-flight} rows are between send and write at
+ * a time; per job, at most {@code channel-capacity} rows wait to be sent.
+ */
+@Service
+public class JobScheduler implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobScheduler.class);
+
+    record JobRow(PdfJob job, GeneratePDFRequest request) {
+    }
+
+    record JobReply(PdfJob job, GeneratePDFRequest request, GeneratePDFReply reply) {
+    }
+
+    private final MultiplexedPdfClient client;
+    private final GrpcClientProperties properties;
+    private final PipelineMetrics metrics;
+    private final WeightedFairQueue<JobRow> sendQueue = new WeightedFairQueue<>();
+    private final WeightedFairQueue<JobReply> writeQueue = new WeightedFairQueue<>();
+    private final Semaphore inFlight;
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Long, PdfJob> jobs = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextJobId = new AtomicLong(1);
+    private final AtomicBoolean workersStarted = new AtomicBoolean();
+    private volatile boolean closed;
+
+    public JobScheduler(MultiplexedPdfClient client, GrpcClientProperties properties, PipelineMetrics metrics) {
+        this.client = client;
+        this.properties = properties;
+        this.metrics = metrics;
+        // More could never be in flight at once; sends wait for the client's slots, which other users share
+        this.inFlight = new Semaphore(Math.min(properties.jobMaxInFlight(), properties.multiplexMaxInFlight()));
+    }
+
+    /**
+     * Starts a job turning every row of {@code input} into a PDF under {@code output}, in the configured
+     * output format. A job of priority 2 gets twice the share of one of priority 1.
+     */
+    public PdfJob submit(String name, Path input, Path output, int priority) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Job scheduler is closed");
+        }
+        if (priority <= 0) {
+            throw new IllegalArgumentException("Priority must be positive: " + priority);
+        }
+        if (!Files.isRegularFile(input)) {
+            throw new NoSuchFileException(input.toString());
+        }
+        Files.createDirectories(output);
+        PdfSink sink = switch (properties.outputFormat()) {
+            case FILES -> new FilePerPdfSink(output);
+            case PACK -> new PackFileSink(output, properties.packSegmentBytes());
+        };
+        startWorkers();
+
+        PdfJob job = new PdfJob(nextJobId.getAndIncrement(), name, input, output, priority, sink,
+                sendQueue.addFlow(priority, properties.channelCapacity()),
+                writeQueue.addFlow(priority, Integer.MAX_VALUE));
+        jobs.put(job.id(), job);
+        job.loader = executorService.submit(() -> load(job));
+        logger.info("Started job {} ({}) from {} with priority {}", job.id(), name, input, priority);
+        return job;
+    }
+
+    /**
+     * Stops a job: rows not yet sent are dropped and replies still in flight are discarded. Its
+     * {@link PdfJob#completion()} completes once those have come back.
+     */
+    public void cancel(PdfJob job) {
+        if (job.stop(PdfJob.State.CANCELLED, null)) {
+            stopJob(job);
+        }
+    }
+
+    /**
+     * Every job submitted so far, running or not, in submission order.
+     */
+    public List<PdfJob> jobs() {
+        return List.copyOf(jobs.values());
+    }
+
+    /**
+     * Forgets finished jobs, so {@link #jobs()} doesn't grow without bound in a long-lived process.
+     */
+    public void purgeFinished() {
+        jobs.values().removeIf(job -> job.completion().isDone());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        jobs.values().forEach(this::cancel);
+        executorService.shutdownNow();
+    }
+
+    private void startWorkers() {
+        if (!workersStarted.compareAndSet(false, true)) {
+            return;
+        }
+        executorService.submit(this::dispatch);
+        for (int i = 0; i < properties.maxDegreeOfParallelism(); i++) {
+            executorService.submit(this::write);
+        }
+    }
+
+    private void load(PdfJob job) {
+        try {
+            var ingestionEngine = new CsvIngestionEngine(properties.ingestParallelism(), properties.ingestChunkBytes(),
+                    (rows, parseNanos) -> metrics.recordParse(parseNanos));
+            ingestionEngine.ingest(job.input(), (offset, request) -> {
+                if (job.isStopped()) {
+                    return;
+                }
+                job.rowRead();
+                try {
+                    // Blocks while the job's lane is full, which paces this job's reader only
+                    job.sendFlow.put(new JobRow(job, request), 1);
+                } catch (IllegalStateException e) {
+                    // Cancelled while waiting for room
+                    rowFinished(job);
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Job {} could not read {}", job.id(), job.input(), e);
+            if (job.stop(PdfJob.State.FAILED, e)) {
+                stopJob(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            job.loaderDone = true;
+            if (job.outstanding.get() == 0) {
+                finish(job);
+            }
+        }
+    }
+
+    /**
+     * Sends rows in fair order, each once a slot in the in-flight window is free.
+     */
+    private void dispatch() {
+        try {
+            while (true) {
+                inFlight.acquire();
+                JobRow next = sendQueue.take();
+                PdfJob job = next.job();
+                if (job.isStopped()) {
+                    inFlight.release();
+                    rowFinished(job);
+                    continue;
+                }
+                CompletableFuture<GeneratePDFReply> sent;
+                try {
+                    // Waits when other users of the client hold its slots, rather than failing the row
+                    sent = client.submitWhenAvailable(next.request());
+                } catch (InterruptedException e) {
+                    inFlight.release();
+                    rowFinished(job);
+                    throw e;
+                }
+                sent.whenComplete((reply, t) -> {
+                    if (t == null && !job.isCancelled()) {
+                        queueWrite(job, next.request(), reply);
+                        return;
+                    }
+                    if (t != null) {
+                        job.rowFailed(t);
+                    }
+                    inFlight.release();
+                    rowFinished(job);
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs on gRPC callback threads; write lanes are unbounded, so this never blocks. The in-flight
+     * window bounds what they hold.
+     */
+    private void queueWrite(PdfJob job, GeneratePDFRequest request, GeneratePDFReply reply) {
+        try {
+            job.writeFlow.put(new JobReply(job, request, reply), reply.getPdf().size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.rowFailed(e);
+            inFlight.release();
+            rowFinished(job);
+        }
+    }
+
+    private void write() {
+        try {
+            while (true) {
+                JobReply next = writeQueue.take();
+                PdfJob job = next.job();
+                try {
+                    if (job.isCancelled()) {
+                        continue; // Discarded; the finally block still finishes the row
+                    }
+                    if (next.reply().getPdf().isEmpty()) {
+                        job.rowEmpty();
+                    } else {
+                        long writeStart = System.nanoTime();
+                        job.sink.write(next.request().getLastName() + "," + next.request().getFirstName(),
+                                next.reply().getPdf());
+                        metrics.recordWrite(System.nanoTime() - writeStart);
+                        job.rowWritten();
+                    }
+                } catch (IOException e) {
+                    logger.error("Job {} failed to save a PDF", job.id(), e);
+                    job.rowFailed(e);
+                } finally {
+                    inFlight.release();
+                    rowFinished(job);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Drops what the job still has queued for sending and stops its reader.
+     */
+    private void stopJob(PdfJob job) {
+        Future<?> loader = job.loader;
+        if (loader != null) {
+            loader.cancel(true);
+        }
+        List<JobRow> dropped = sendQueue.removeFlow(job.sendFlow);
+        for (int i = 0; i < dropped.size(); i++) {
+            rowFinished(job);
+        }
+        logger.info("Job {} stopped ({}), dropped {} unsent rows", job.id(), job.state(), dropped.size());
+    }
+
+    private void rowFinished(PdfJob job) {
+        if (job.outstanding.decrementAndGet() == 0 && job.loaderDone) {
+            finish(job);
+        }
+    }
+
+    private void finish(PdfJob job) {
+        if (!job.finish()) {
+            return;
+        }
+        sendQueue.removeFlow(job.sendFlow);
+        writeQueue.removeFlow(job.writeFlow);
+        try {
+            job.sink.close();
+        } catch (IOException e) {
+            logger.error("Job {} failed to close its output", job.id(), e);
+        }
+        logger.info(job.summary());
+        job.completed();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.grpcclient.job;
+
+import com.example.grpcclient.output.PdfSink;
+import com.example.grpcclient.util.WeightedFairQueue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One CSV-to-PDF job run by the {@link JobScheduler}, with its own output, counters and lanes into the
+ * scheduler's shared send and write queues.
+ */
+public class PdfJob {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        /** The input could not be read to the end; rows already sent are still written. */
+        FAILED
+    }
+
+    private final long id;
+    private final String name;
+    private final Path input;
+    private final Path output;
+    private final int priority;
+    private final Instant startTime = Instant.now();
+    private final CompletableFuture<PdfJob> completion = new CompletableFuture<>();
+
+    // Pipeline state, owned by the scheduler
+    final PdfSink sink;
+    final WeightedFairQueue<JobScheduler.JobRow>.Flow sendFlow;
+    final WeightedFairQueue<JobScheduler.JobReply>.Flow writeFlow;
+    volatile Future<?> loader;
+    // Rows read and not yet written, failed or dropped
+    final AtomicLong outstanding = new AtomicLong();
+    volatile boolean loaderDone;
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    // Replies without a PDF: done, with nothing to write
+    private final LongAdder empty = new LongAdder();
+    private volatile State state = State.RUNNING;
+    private volatile Throwable failure;
+    private volatile Instant endTime;
+
+    PdfJob(long id, String name, Path input, Path output, int priority, PdfSink sink,
+           WeightedFairQueue<JobScheduler.JobRow>.Flow sendFlow,
+           WeightedFairQueue<JobScheduler.JobReply>.Flow writeFlow) {
+        this.id = id;
+        this.name = name;
+        this.input = input;
+        this.output = output;
+        this.priority = priority;
+        this.sink = sink;
+        this.sendFlow = sendFlow;
+        this.writeFlow = writeFlow;
+    }
+
+    public long id() { return id; }
+    public String name() { return name; }
+    public Path input() { return input; }
+    public Path output() { return output; }
+    public int priority() { return priority; }
+    public State state() { return state; }
+    public long rowsRead() { return rowsRead.sum(); }
+    public long written() { return written.sum(); }
+    public long failed() { return failed.sum(); }
+    public long empty() { return empty.sum(); }
+    /** Why the job failed, or the last row failure; null if nothing failed. */
+    public Throwable failure() { return failure; }
+
+    /**
+     * Completes with the job itself once every row it read has been written, has failed or was
+     * dropped by cancellation.
+     */
+    public CompletableFuture<PdfJob> completion() { return completion; }
+
+    /**
+     * Fraction of rows read so far that are done; only final once the job has completed.
+     */
+    public double progress() {
+        long read = rowsRead.sum();
+        return read == 0 ? 0 : (double) (written.sum() + empty.sum() + failed.sum()) / read;
+    }
+
+    boolean isStopped() { return state == State.CANCELLED || state == State.FAILED; }
+
+    /** Replies to a cancelled job are discarded; a failed job still writes the rows it sent. */
+    boolean isCancelled() { return state == State.CANCELLED; }
+
+    void rowRead() {
+        rowsRead.increment();
+        outstanding.incrementAndGet();
+    }
+
+    void rowWritten() { written.increment(); }
+
+    void rowEmpty() { empty.increment(); }
+
+    void rowFailed(Throwable t) {
+        failed.increment();
+        failure = t;
+    }
+
+    /**
+     * Stops the job in {@code stopped} state unless it already stopped or finished. Returns false if
+     * it had.
+     */
+    boolean stop(State stopped, Throwable cause) {
+        synchronized (this) {
+            if (state != State.RUNNING) {
+                return false;
+            }
+            state = stopped;
+            if (cause != null) {
+                failure = cause;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the job finished. Returns false if it already was.
+     */
+    boolean finish() {
+        if (!finished.compareAndSet(false, true)) {
+            return false;
+        }
+        synchronized (this) {
+            if (state == State.RUNNING) {
+                state = State.COMPLETED;
+            }
+        }
+        endTime = Instant.now();
+        return true;
+    }
+
+    void completed() { completion.complete(this); }
+
+    public String summary() {
+        Instant end = endTime != null ? endTime : Instant.now();
+        long millis = Math.max(1, Duration.between(startTime, end).toMillis());
+        return String.format("Job %d (%s) %s: read %,d, written %,d, empty %,d, failed %,d, priority %d, %.1f rows/s",
+                id, name, state, rowsRead(), written(), empty(), failed(), priority,
+                (written() + empty() + failed()) * 1000.0 / millis);
+    }
+}
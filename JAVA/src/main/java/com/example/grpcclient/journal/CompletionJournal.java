@@ -0,0 +1,252 @@
+package com.example.grpcclient.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only journal of the input rows whose PDFs have been persisted, so an interrupted run can
+ * resume without regenerating them. Rows are identified by the byte offset of their CSV line.
+ *
+ * The file starts with a header fingerprinting the input (size and modification time); a journal
+ * left by a different input is discarded. After the header come 8-byte row offsets. Completions
+ * are buffered and committed in groups: the output is synced through the {@link Barrier} first,
+ * then the group is appended and fsynced, so a journaled row never outlives its PDF in a crash.
+ * A torn trailing record is dropped when the journal is reopened.
+ */
+public class CompletionJournal implements Closeable {
+
+    /**
+     * Makes the output that journaled rows refer to durable.
+     */
+    @FunctionalInterface
+    public interface Barrier {
+        void sync() throws IOException;
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(CompletionJournal.class);
+    private static final int MAGIC = 0x50444A31; // "PDJ1"
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + Long.BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long[] recovered;
+    private final long syncIntervalNanos;
+    private final int syncBatch;
+    private final Barrier barrier;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchReady = lock.newCondition();
+    private long[] pending = new long[64];
+    private int pendingCount;
+    private boolean closed;
+    private volatile long committed;
+    private final Thread flusher;
+
+    private CompletionJournal(Path path, FileChannel channel, long[] recovered,
+                              Duration syncInterval, int syncBatch, Barrier barrier) {
+        this.path = path;
+        this.channel = channel;
+        this.recovered = recovered;
+        this.syncIntervalNanos = syncInterval.toNanos();
+        this.syncBatch = Math.max(1, syncBatch);
+        this.barrier = barrier;
+        this.flusher = Thread.ofVirtual().name("completion-journal").start(this::flushLoop);
+    }
+
+    /**
+     * Opens the journal at {@code path} for a run over {@code input}, recovering the rows it
+     * already lists if it was written for the same input.
+     */
+    public static CompletionJournal open(Path path, Path input, Duration syncInterval, int syncBatch,
+                                         Barrier barrier) throws IOException {
+        long inputSize = Files.size(input);
+        long inputModified = Files.getLastModifiedTime(input).toMillis();
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long[] recovered = readRecords(channel, inputSize, inputModified);
+            if (recovered == null) {
+                if (channel.size() > 0) {
+                    logger.warn("Journal {} was written for a different input; starting over", path);
+                }
+                recovered = new long[0];
+                channel.truncate(0);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                        .putInt(MAGIC).putLong(inputSize).putLong(inputModified).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(false);
+            }
+            channel.position(channel.size());
+            return new CompletionJournal(path, channel, recovered, syncInterval, syncBatch, barrier);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the sorted offsets listed in the journal, or null if it has no header for this input.
+     */
+    private static long[] readRecords(FileChannel channel, long inputSize, long inputModified) throws IOException {
+        if (channel.size() < HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+        if (header.getInt() != MAGIC || header.getLong() != inputSize || header.getLong() != inputModified) {
+            return null;
+        }
+
+        long records = (channel.size() - HEADER_BYTES) / Long.BYTES;
+        // Drop a record torn by a crash mid-append
+        channel.truncate(HEADER_BYTES + records * Long.BYTES);
+        ByteBuffer body = readFully(channel, HEADER_BYTES, Math.toIntExact(records * Long.BYTES));
+
+        long[] offsets = new long[(int) records];
+        body.asLongBuffer().get(offsets);
+        Arrays.sort(offsets);
+        return offsets;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Journal truncated while reading");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Rows completed by earlier runs, as found when the journal was opened.
+     */
+    public int recoveredRows() { return recovered.length; }
+
+    /**
+     * Rows committed by this run so far.
+     */
+    public long committedRows() { return committed; }
+
+    public boolean isCompleted(long offset) {
+        return Arrays.binarySearch(recovered, offset) >= 0;
+    }
+
+    /**
+     * Records that the row at {@code offset} has been written. Never blocks on I/O; the row becomes
+     * durable with the next group commit.
+     */
+    public void record(long offset) {
+        if (offset < 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+            pending[pendingCount++] = offset;
+            if (pendingCount >= syncBatch) {
+                batchReady.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long[] batch;
+            int count;
+            boolean last;
+            lock.lock();
+            try {
+                long remaining = syncIntervalNanos;
+                while (!closed && pendingCount < syncBatch && remaining > 0) {
+                    remaining = batchReady.awaitNanos(remaining);
+                }
+                batch = pending;
+                count = pendingCount;
+                pending = new long[Math.max(64, count)];
+                pendingCount = 0;
+                last = closed;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            if (count > 0) {
+                commit(batch, count);
+            }
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    private void commit(long[] batch, int count) {
+        try {
+            barrier.sync();
+            ByteBuffer records = ByteBuffer.allocate(count * Long.BYTES);
+            records.asLongBuffer().put(batch, 0, count);
+            while (records.hasRemaining()) {
+                channel.write(records);
+            }
+            channel.force(false);
+            committed += count;
+        } catch (IOException e) {
+            // The rows stay unjournaled and are simply regenerated by the next run
+            logger.error("Failed to commit {} rows to journal {}", count, path, e);
+        }
+    }
+
+    /**
+     * Commits whatever is still pending and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            batchReady.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Closes and removes the journal, once every row of the input has been written.
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    public Path path() { return path; }
+}
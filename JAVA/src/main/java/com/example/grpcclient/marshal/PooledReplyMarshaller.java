@@ -0,0 +1,216 @@
+package com.example.grpcclient.marshal;
+
+import com.example.grpcclient.proto.GeneratePDFReply;
+import com.example.grpcclient.proto.MakePDFGrpc;
+import com.example.grpcclient.util.DirectBufferPool;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Detachable;
+import io.grpc.HasByteBuffer;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.protobuf.ProtoUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parses {@link GeneratePDFReply} messages so that the {@code pdf} field aliases off-heap memory
+ * instead of being copied into a heap {@link ByteString}.
+ *
+ * When the transport hands over a detachable stream backed by byte buffers (uncompressed replies on
+ * Netty), the stream is detached and the reply aliases Netty's pooled direct buffers themselves, with
+ * no copy at all. Otherwise a stream of known length is copied once into a buffer from a
+ * {@link DirectBufferPool}; anything else, such as a compressed reply, falls back to the default heap
+ * parser. Either way the memory stays pinned until {@link #release(GeneratePDFReply)} is called for
+ * the reply, which must happen exactly once, after the last use of its bytes.
+ *
+ * {@link #interceptor()} installs the marshaller on the GeneratePDF and StreamPDFs calls of a channel.
+ */
+public class PooledReplyMarshaller implements MethodDescriptor.Marshaller<GeneratePDFReply> {
+
+    private static final MethodDescriptor.Marshaller<GeneratePDFReply> DEFAULT =
+            ProtoUtils.marshaller(GeneratePDFReply.getDefaultInstance());
+    private static final int COPY_CHUNK = 64 * 1024;
+
+    private final DirectBufferPool pool;
+    // Replies whose bytes are pinned, by identity: equals() would compare whole PDFs
+    private final Map<GeneratePDFReply, AutoCloseable> pinned = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final LongAdder aliased = new LongAdder();
+    private final LongAdder copied = new LongAdder();
+    private final LongAdder onHeap = new LongAdder();
+
+    public PooledReplyMarshaller(DirectBufferPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public InputStream stream(GeneratePDFReply value) {
+        return DEFAULT.stream(value);
+    }
+
+    @Override
+    public GeneratePDFReply parse(InputStream stream) {
+        try {
+            if (stream instanceof Detachable detachable && stream instanceof HasByteBuffer buffers
+                    && buffers.byteBufferSupported()) {
+                return parseDetached(detachable.detach());
+            }
+            if (stream instanceof KnownLength && stream.available() > 0) {
+                return parseCopied(stream, stream.available());
+            }
+        } catch (IOException e) {
+            throw Status.INTERNAL.withDescription("Invalid GeneratePDFReply").withCause(e).asRuntimeException();
+        }
+        onHeap.increment();
+        return DEFAULT.parse(stream);
+    }
+
+    /**
+     * Frees the memory behind a reply returned by {@link #parse(InputStream)}. Does nothing for
+     * replies that were parsed onto the heap or have already been released.
+     */
+    public void release(GeneratePDFReply reply) {
+        AutoCloseable memory = pinned.remove(reply);
+        if (memory == null) {
+            return;
+        }
+        try {
+            memory.close();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to release reply buffers", e);
+        }
+    }
+
+    /**
+     * True if the reply's bytes live in memory that {@link #release(GeneratePDFReply)} will free.
+     */
+    public boolean isPinned(GeneratePDFReply reply) {
+        return pinned.containsKey(reply);
+    }
+
+    /**
+     * Returns the reply itself if it is on the heap, otherwise a heap copy, releasing the original.
+     * For replies that outlive the pipeline's control, such as cached ones or those handed to callers.
+     */
+    public GeneratePDFReply onHeap(GeneratePDFReply reply) {
+        if (!isPinned(reply)) {
+            return reply;
+        }
+        GeneratePDFReply copy = reply.toBuilder()
+                .setPdf(UnsafeByteOperations.unsafeWrap(reply.getPdf().toByteArray()))
+                .build();
+        release(reply);
+        return copy;
+    }
+
+    public ClientInterceptor interceptor() {
+        Set<String> methods = Set.of(
+                MakePDFGrpc.getGeneratePDFMethod().getFullMethodName(),
+                MakePDFGrpc.getStreamPDFsMethod().getFullMethodName());
+        return new ClientInterceptor() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+                    MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+                if (!methods.contains(method.getFullMethodName())) {
+                    return next.newCall(method, callOptions);
+                }
+                // Both methods reply with GeneratePDFReply, so only the response marshaller changes
+                var pooled = method.toBuilder(method.getRequestMarshaller(),
+                        (MethodDescriptor.Marshaller<RespT>) PooledReplyMarshaller.this).build();
+                return next.newCall(pooled, callOptions);
+            }
+        };
+    }
+
+    public String summary() {
+        return String.format("Reply buffers: %,d aliased, %,d copied off-heap, %,d on heap; %,d MB direct allocated",
+                aliased.sum(), copied.sum(), onHeap.sum(), pool.allocatedBytes() / (1024 * 1024));
+    }
+
+    /**
+     * Parses straight from the transport's buffers. The detached stream keeps them alive and frees
+     * them when closed; marking it first stops it from freeing each buffer as it is skipped past.
+     * A stream that can't be walked buffer by buffer is copied off-heap instead.
+     */
+    private GeneratePDFReply parseDetached(InputStream detached) throws IOException {
+        boolean pinnedDetached = false;
+        try {
+            if (!(detached instanceof HasByteBuffer buffers) || !buffers.byteBufferSupported()
+                    || !detached.markSupported()) {
+                return parseCopied(detached, detached.available());
+            }
+            detached.mark(detached.available());
+            List<ByteString> segments = new ArrayList<>();
+            while (detached.available() > 0) {
+                ByteBuffer buffer = buffers.getByteBuffer();
+                int length = buffer.remaining();
+                segments.add(UnsafeByteOperations.unsafeWrap(buffer));
+                detached.skipNBytes(length);
+            }
+            GeneratePDFReply reply = parseAliased(ByteString.copyFrom(segments));
+            pinnedDetached = pin(reply, detached);
+            aliased.increment();
+            return reply;
+        } finally {
+            if (!pinnedDetached) {
+                detached.close();
+            }
+        }
+    }
+
+    private GeneratePDFReply parseCopied(InputStream stream, int size) throws IOException {
+        ByteBuffer buffer = pool.acquire(size);
+        boolean pinnedBuffer = false;
+        try {
+            byte[] chunk = new byte[Math.min(size, COPY_CHUNK)];
+            while (buffer.hasRemaining()) {
+                int read = stream.read(chunk, 0, Math.min(chunk.length, buffer.remaining()));
+                if (read < 0) {
+                    throw new IOException("Reply ended after " + buffer.position() + " of " + size + " bytes");
+                }
+                buffer.put(chunk, 0, read);
+            }
+            buffer.flip();
+            GeneratePDFReply reply = parseAliased(UnsafeByteOperations.unsafeWrap(buffer));
+            pinnedBuffer = pin(reply, () -> pool.release(buffer));
+            copied.increment();
+            return reply;
+        } finally {
+            if (!pinnedBuffer) {
+                pool.release(buffer);
+            }
+        }
+    }
+
+    private static GeneratePDFReply parseAliased(ByteString message) throws IOException {
+        CodedInputStream input = message.newCodedInput();
+        // Bytes fields become views of the input instead of copies
+        input.enableAliasing(true);
+        input.setSizeLimit(Integer.MAX_VALUE);
+        return GeneratePDFReply.parseFrom(input);
+    }
+
+    /**
+     * Ties {@code memory} to the reply until it is released. Returns false if the reply was already
+     * pinned, which only happens for a shared empty instance; the caller then frees {@code memory}.
+     */
+    private boolean pin(GeneratePDFReply reply, AutoCloseable memory) {
+        return pinned.putIfAbsent(reply, memory) == null;
+    }
+}
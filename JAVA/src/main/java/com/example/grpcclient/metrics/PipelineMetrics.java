@@ -0,0 +1,129 @@
+package com.example.grpcclient.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Latency histograms for each pipeline stage and gauges for the queues between them, so the
+ * slowest stage shows up without a profiler. Stage timers share the name {@code pdf.client.stage}
+ * and are told apart by their {@code stage} tag. The {@link StartupTimeline} shows how much of a
+ * short run went to starting up before the first request.
+ */
+@Component
+public class PipelineMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineMetrics.class);
+    private static final double[] PERCENTILES = {0.5, 0.99};
+
+    private final MeterRegistry registry;
+    private final PrometheusExporter prometheus;
+    private final Map<String, Timer> stages = new LinkedHashMap<>();
+    private final Timer parse;
+    private final Timer send;
+    private final Timer roundTrip;
+    private final Timer write;
+    private final StartupTimeline startup;
+
+    public PipelineMetrics(MeterRegistry registry, PrometheusExporter prometheus) {
+        this.registry = registry;
+        this.prometheus = prometheus;
+        this.parse = stage("csv_parse", "CSV chunk parse time, excluding backpressure");
+        this.send = stage("send", "Time to hand one request to the transport");
+        this.roundTrip = stage("round_trip", "Time from sending a request to receiving its reply");
+        this.write = stage("disk_write", "Time to persist one PDF");
+        this.startup = new StartupTimeline(registry);
+    }
+
+    private Timer stage(String name, String description) {
+        Timer timer = Timer.builder("pdf.client.stage")
+                .tag("stage", name)
+                .description(description)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+        stages.put(name, timer);
+        return timer;
+    }
+
+    public void recordParse(long nanos) { parse.record(nanos, TimeUnit.NANOSECONDS); }
+    public void recordSend(long nanos) { send.record(nanos, TimeUnit.NANOSECONDS); }
+    public void recordRoundTrip(long nanos) { roundTrip.record(nanos, TimeUnit.NANOSECONDS); }
+    public void recordWrite(long nanos) { write.record(nanos, TimeUnit.NANOSECONDS); }
+
+    public StartupTimeline startup() { return startup; }
+
+    /**
+     * Started rather than ready: runners, and so the batch run, come between the two.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void contextStarted() {
+        startup.reached(StartupTimeline.Phase.CONTEXT_READY);
+    }
+
+    /**
+     * Reports {@code depth} of {@code queue} as the gauge {@code pdf.client.queue.<name>}.
+     */
+    public <T> void gaugeQueue(String name, String baseUnit, T queue, ToDoubleFunction<T> depth) {
+        Gauge.builder("pdf.client.queue." + name, queue, depth)
+                .baseUnit(baseUnit)
+                .register(registry);
+    }
+
+    /**
+     * Called after each run; rewrites the Prometheus text file if one is configured.
+     */
+    public void runFinished() {
+        if (!prometheus.enabled()) {
+            return;
+        }
+        try {
+            prometheus.writeFile();
+        } catch (IOException e) {
+            logger.warn("Failed to write Prometheus metrics file", e);
+        }
+    }
+
+    /**
+     * One line per stage that has recorded anything: count, median, p99 and max in milliseconds.
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder(String.format("%-12s %12s %10s %10s %10s",
+                "Stage", "count", "p50 ms", "p99 ms", "max ms"));
+        stages.forEach((name, timer) -> {
+            if (timer.count() == 0) {
+                return;
+            }
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            double p50 = 0;
+            double p99 = 0;
+            for (ValueAtPercentile value : snapshot.percentileValues()) {
+                if (value.percentile() == 0.5) {
+                    p50 = value.value(TimeUnit.MILLISECONDS);
+                } else if (value.percentile() == 0.99) {
+                    p99 = value.value(TimeUnit.MILLISECONDS);
+                }
+            }
+            summary.append(String.format("%n%-12s %,12d %10.3f %10.3f %10.3f",
+                    name, timer.count(), p50, p99, timer.max(TimeUnit.MILLISECONDS)));
+        });
+        summary.append(System.lineSeparator()).append(startup.summary());
+        return summary.toString();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.grpcclient.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Publishes metrics in the Prometheus text format: on {@code /metrics} over HTTP while the client
+ * runs, and/or as a file rewritten after every run, for a node_exporter textfile collector to pick
+ * up from batch runs that end before they could be scraped. The endpoint has no authentication, so it
+ * is only reachable from other hosts when bound to a non-loopback address on purpose.
+ */
+public class PrometheusExporter implements Closeable {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final PrometheusMeterRegistry registry;
+    private final HttpServer server;
+    private final Path file;
+
+    /**
+     * @param host address to serve {@code /metrics} on; {@code 0.0.0.0} for every interface
+     * @param port HTTP port to serve {@code /metrics} on, or 0 for none
+     * @param file text file to write after each run, or null for none
+     */
+    public PrometheusExporter(String host, int port, Path file) throws IOException {
+        this.file = file;
+        this.registry = port > 0 || file != null ? new PrometheusMeterRegistry(PrometheusConfig.DEFAULT) : null;
+        this.server = port > 0 ? startServer(host, port) : null;
+    }
+
+    /**
+     * An exporter that publishes nothing.
+     */
+    public static PrometheusExporter disabled() throws IOException {
+        return new PrometheusExporter(null, 0, null);
+    }
+
+    private HttpServer startServer(String host, int port) throws IOException {
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+        httpServer.createContext("/metrics", exchange -> {
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        httpServer.start();
+        return httpServer;
+    }
+
+    public boolean enabled() { return registry != null; }
+
+    public PrometheusMeterRegistry registry() { return registry; }
+
+    /**
+     * Rewrites the metrics file, if one is configured. The file is replaced atomically so a
+     * collector never reads it half written.
+     */
+    public void writeFile() throws IOException {
+        if (file == null) {
+            return;
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, registry.scrape());
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (registry != null) {
+            registry.close();
+        }
+    }
+}
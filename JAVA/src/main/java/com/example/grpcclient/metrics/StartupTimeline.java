@@ -0,0 +1,110 @@
+package com.example.grpcclient.metrics;
+
+import com.example.grpcclient.proto.MakePDFGrpc;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Milestones of process startup, in milliseconds since the JVM started, reported as the gauge
+ * {@code pdf.client.startup} tagged by {@code phase}. A phase reads NaN until it has happened;
+ * each is recorded once, by whichever event reaches it first.
+ */
+public class StartupTimeline {
+
+    public enum Phase {
+        /** The first pooled channel finished its pre-warm ping. */
+        CHANNEL_READY,
+        /** The Spring context is up and the batch run about to start. */
+        CONTEXT_READY,
+        /** The first MakePDF request was handed to the transport. */
+        FIRST_REQUEST,
+        /** The first MakePDF reply arrived. */
+        FIRST_REPLY
+    }
+
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final AtomicLong[] reached = new AtomicLong[Phase.values().length];
+
+    StartupTimeline(MeterRegistry registry) {
+        for (Phase phase : Phase.values()) {
+            reached[phase.ordinal()] = new AtomicLong(-1);
+            TimeGauge.builder("pdf.client.startup", this, TimeUnit.MILLISECONDS, timeline -> timeline.millis(phase))
+                    .tag("phase", phase.name().toLowerCase())
+                    .description("Time from JVM start to a startup milestone")
+                    .register(registry);
+        }
+    }
+
+    public void reached(Phase phase) {
+        reached[phase.ordinal()].compareAndSet(-1, Math.max(0, System.currentTimeMillis() - jvmStartMillis));
+    }
+
+    /**
+     * Milliseconds from JVM start to {@code phase}, or NaN if it hasn't happened yet.
+     */
+    public double millis(Phase phase) {
+        long millis = reached[phase.ordinal()].get();
+        return millis < 0 ? Double.NaN : millis;
+    }
+
+    /**
+     * Records the first request and reply of MakePDF calls on a channel. Other services, such as
+     * the pre-warm health check, don't count. Calls pass through untouched once both are recorded.
+     */
+    public ClientInterceptor interceptor() {
+        return new ClientInterceptor() {
+            @Override
+            public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+                    MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+                ClientCall<ReqT, RespT> call = next.newCall(method, callOptions);
+                if (!MakePDFGrpc.SERVICE_NAME.equals(method.getServiceName()) || !Double.isNaN(millis(Phase.FIRST_REPLY))) {
+                    return call;
+                }
+                return new ForwardingClientCall.SimpleForwardingClientCall<>(call) {
+                    @Override
+                    public void start(Listener<RespT> responseListener, Metadata headers) {
+                        super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                            @Override
+                            public void onMessage(RespT message) {
+                                reached(Phase.FIRST_REPLY);
+                                super.onMessage(message);
+                            }
+                        }, headers);
+                    }
+
+                    @Override
+                    public void sendMessage(ReqT message) {
+                        reached(Phase.FIRST_REQUEST);
+                        super.sendMessage(message);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * One line with every milestone reached so far.
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder("Startup (ms after JVM start):");
+        for (Phase phase : Phase.values()) {
+            double millis = millis(phase);
+            if (!Double.isNaN(millis)) {
+                summary.append(String.format(" %s %,.0f", phase.name().toLowerCase(), millis));
+            }
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.grpcclient.metrics;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientStreamTracer;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts messages and wire bytes in each direction, per RPC method. Attaches a stream tracer to
+ * every call, so the byte counts are what actually crossed the transport. Uncompressed sizes are
+ * counted separately, so the two show how much message compression saves.
+ */
+public class TrafficMetricsInterceptor implements ClientInterceptor {
+
+    private final MeterRegistry registry;
+    private final Map<String, ClientStreamTracer.Factory> tracersByMethod = new ConcurrentHashMap<>();
+
+    public TrafficMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+            MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+        ClientStreamTracer.Factory tracers = tracersByMethod.computeIfAbsent(method.getBareMethodName(), this::tracerFactory);
+        return next.newCall(method, callOptions.withStreamTracerFactory(tracers));
+    }
+
+    private ClientStreamTracer.Factory tracerFactory(String method) {
+        Counter messagesSent = counter("grpc.client.messages", method, "sent", null);
+        Counter messagesReceived = counter("grpc.client.messages", method, "received", null);
+        Counter bytesSent = counter("grpc.client.bytes", method, "sent", "bytes");
+        Counter bytesReceived = counter("grpc.client.bytes", method, "received", "bytes");
+        Counter uncompressedSent = counter("grpc.client.uncompressed.bytes", method, "sent", "bytes");
+        Counter uncompressedReceived = counter("grpc.client.uncompressed.bytes", method, "received", "bytes");
+
+        // The tracer only bumps shared counters, so one instance serves every stream of the method
+        ClientStreamTracer tracer = new ClientStreamTracer() {
+            @Override
+            public void outboundMessage(int seqNo) {
+                messagesSent.increment();
+            }
+
+            @Override
+            public void inboundMessage(int seqNo) {
+                messagesReceived.increment();
+            }
+
+            @Override
+            public void outboundWireSize(long bytes) {
+                bytesSent.increment(bytes);
+            }
+
+            @Override
+            public void inboundWireSize(long bytes) {
+                bytesReceived.increment(bytes);
+            }
+
+            @Override
+            public void outboundUncompressedSize(long bytes) {
+                uncompressedSent.increment(bytes);
+            }
+
+            @Override
+            public void inboundUncompressedSize(long bytes) {
+                uncompressedReceived.increment(bytes);
+            }
+        };
+        return new ClientStreamTracer.Factory() {
+            @Override
+            public ClientStreamTracer newClientStreamTracer(ClientStreamTracer.StreamInfo info, Metadata headers) {
+                return tracer;
+            }
+        };
+    }
+
+    private Counter counter(String name, String method, String direction, String baseUnit) {
+        return Counter.builder(name)
+                .tag("method", method)
+                .tag("direction", direction)
+                .baseUnit(baseUnit)
+                .register(registry);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.grpcclient.output;
+
+import com.example.grpcclient.util.ByteStringFiles;
+import com.google.protobuf.ByteString;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Writes every PDF to its own {@code pdf_<UUID>.pdf} file in the output directory.
+ */
+public class FilePerPdfSink implements PdfSink {
+
+    private static final boolean WINDOWS = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+
+    private final Path outputPath;
+    // Files written since the last sync; null when nobody syncs, so nothing piles up
+    private final Queue<Path> unsynced;
+
+    public FilePerPdfSink(Path outputPath) {
+        this(outputPath, false);
+    }
+
+    /**
+     * @param durable whether {@link #sync()} will be called, in which case every file written is
+     *                remembered until the next sync forces it to disk
+     */
+    public FilePerPdfSink(Path outputPath, boolean durable) {
+        this.outputPath = outputPath;
+        this.unsynced = durable ? new ConcurrentLinkedQueue<>() : null;
+    }
+
+    @Override
+    public void write(String key, ByteString pdf) throws IOException {
+        Path file = outputPath.resolve("pdf_" + UUID.randomUUID() + ".pdf");
+        // Gathering write straight from the reply's buffers; no intermediate byte[]
+        ByteStringFiles.write(file, pdf);
+        if (unsynced != null) {
+            unsynced.add(file);
+        }
+    }
+
+    /**
+     * Forces every file whose write returned before this call, then the directory so their entries
+     * survive too.
+     */
+    @Override
+    public void sync() throws IOException {
+        if (unsynced == null) {
+            return;
+        }
+        boolean any = false;
+        Path file;
+        while ((file = unsynced.poll()) != null) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            any = true;
+        }
+        if (any) {
+            forceDirectory();
+        }
+    }
+
+    private void forceDirectory() throws IOException {
+        try (FileChannel directory = FileChannel.open(outputPath, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Windows can't open a directory as a channel; NTFS journals the entries itself
+            if (!WINDOWS) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        // Every file is closed as soon as it is written
+    }
+}
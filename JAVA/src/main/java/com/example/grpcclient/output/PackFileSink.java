@@ -0,0 +1,166 @@
+package com.example.grpcclient.output;
+
+import com.example.grpcclient.util.ByteStringFiles;
+import com.google.protobuf.ByteString;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Appends PDFs into large rolling segment files with a compact per-segment index, replacing
+ * millions of small files with a handful of sequentially written ones. See {@link PackFormat}.
+ *
+ * Writers reserve their byte range under a short lock and then write it positionally in
+ * parallel; a segment is only closed once every reserved write into it has finished.
+ */
+public class PackFileSink implements PdfSink {
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final Object lock = new Object();
+    private Segment current;
+    private int nextSegment;
+    // Sealed segments stay here until their last pending write lands and they are closed
+    private final Set<Segment> openSegments = ConcurrentHashMap.newKeySet();
+
+    public PackFileSink(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.nextSegment = firstFreeSegment(directory);
+        this.current = openSegment();
+    }
+
+    @Override
+    public void write(String key, ByteString pdf) throws IOException {
+        Segment segment;
+        Segment full = null;
+        long offset;
+        synchronized (lock) {
+            long size = current.size();
+            if (size > 0 && size + pdf.size() > segmentBytes) {
+                full = current;
+                current = openSegment();
+            }
+            segment = current;
+            offset = segment.reserve(pdf.size());
+        }
+
+        boolean written = false;
+        try {
+            ByteStringFiles.write(segment.data, pdf, offset);
+            written = true;
+        } finally {
+            try {
+                segment.finishWrite(written ? PackFormat.encodeEntry(offset, pdf.size(), key) : null);
+            } finally {
+                if (full != null) {
+                    // Sealing may fsync the whole segment, so it runs outside the lock other writers wait on
+                    full.seal();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void sync() throws IOException {
+        for (Segment segment : openSegments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            current.seal();
+        }
+    }
+
+    private Segment openSegment() throws IOException {
+        int number = nextSegment++;
+        Segment segment = new Segment(
+                FileChannel.open(PackFormat.dataFile(directory, number),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                FileChannel.open(PackFormat.indexFile(directory, number),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+                openSegments::remove);
+        openSegments.add(segment);
+        return segment;
+    }
+
+    private static int firstFreeSegment(Path directory) throws IOException {
+        int segment = 0;
+        while (Files.exists(PackFormat.dataFile(directory, segment))) {
+            segment++;
+        }
+        return segment;
+    }
+
+    private static final class Segment {
+        private final FileChannel data;
+        private final FileChannel index;
+        private final Consumer<Segment> onClosed;
+        private long size;
+        private int pendingWrites;
+        private boolean sealed;
+
+        Segment(FileChannel data, FileChannel index, Consumer<Segment> onClosed) {
+            this.data = data;
+            this.index = index;
+            this.onClosed = onClosed;
+        }
+
+        synchronized long size() {
+            return size;
+        }
+
+        synchronized long reserve(int length) {
+            long offset = size;
+            size += length;
+            pendingWrites++;
+            return offset;
+        }
+
+        synchronized void finishWrite(ByteBuffer entry) throws IOException {
+            try {
+                if (entry != null) {
+                    while (entry.hasRemaining()) {
+                        index.write(entry);
+                    }
+                }
+            } finally {
+                pendingWrites--;
+                closeIfDone();
+            }
+        }
+
+        synchronized void seal() throws IOException {
+            sealed = true;
+            closeIfDone();
+        }
+
+        synchronized void force() throws IOException {
+            if (data.isOpen()) {
+                data.force(false);
+                index.force(false);
+            }
+        }
+
+        private void closeIfDone() throws IOException {
+            if (sealed && pendingWrites == 0 && data.isOpen()) {
+                try (data; index) {
+                    data.force(false);
+                    index.force(false);
+                } finally {
+                    onClosed.accept(this);
+                }
+            }
+        }
+    }
+}
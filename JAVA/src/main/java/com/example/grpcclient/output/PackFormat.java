@@ -0,0 +1,40 @@
+package com.example.grpcclient.output;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * On-disk layout shared by {@link PackFileSink} and {@link PackReader}.
+ *
+ * PDFs are appended back to back into segment files {@code pdfs-NNNNN.pack}. Each segment has a
+ * sibling {@code pdfs-NNNNN.idx} made of fixed-header records:
+ * {@code offset (int64) | length (int32) | key length (uint16) | key (UTF-8)}.
+ */
+final class PackFormat {
+
+    static final String SEGMENT_PREFIX = "pdfs-";
+    static final String DATA_SUFFIX = ".pack";
+    static final String INDEX_SUFFIX = ".idx";
+    static final int ENTRY_HEADER_BYTES = Long.BYTES + Integer.BYTES + Short.BYTES;
+    static final int MAX_KEY_BYTES = 0xFFFF;
+
+    private PackFormat() {
+    }
+
+    static Path dataFile(Path directory, int segment) {
+        return directory.resolve(String.format("%s%05d%s", SEGMENT_PREFIX, segment, DATA_SUFFIX));
+    }
+
+    static Path indexFile(Path directory, int segment) {
+        return directory.resolve(String.format("%s%05d%s", SEGMENT_PREFIX, segment, INDEX_SUFFIX));
+    }
+
+    static ByteBuffer encodeEntry(long offset, int length, String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int keyLength = Math.min(keyBytes.length, MAX_KEY_BYTES);
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_HEADER_BYTES + keyLength);
+        entry.putLong(offset).putInt(length).putShort((short) keyLength).put(keyBytes, 0, keyLength);
+        return entry.flip();
+    }
+}
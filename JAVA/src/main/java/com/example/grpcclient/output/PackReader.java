@@ -0,0 +1,81 @@
+package com.example.grpcclient.output;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Random-access reader for a directory written by {@link PackFileSink}. Segments are memory-mapped
+ * and PDFs are returned as read-only views into the mapping, so extracting one costs no copy.
+ */
+public class PackReader {
+
+    public record Entry(String key, int segment, long offset, int length) {
+    }
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, List<Entry>> entriesByKey = new HashMap<>();
+
+    public PackReader(Path directory) throws IOException {
+        for (int segment = 0; Files.exists(PackFormat.dataFile(directory, segment)); segment++) {
+            try (FileChannel data = FileChannel.open(PackFormat.dataFile(directory, segment), StandardOpenOption.READ)) {
+                segments.add(data.map(FileChannel.MapMode.READ_ONLY, 0, data.size()));
+            }
+            loadIndex(PackFormat.indexFile(directory, segment), segment);
+        }
+    }
+
+    private void loadIndex(Path indexFile, int segment) throws IOException {
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+        while (index.remaining() >= PackFormat.ENTRY_HEADER_BYTES) {
+            long offset = index.getLong();
+            int length = index.getInt();
+            int keyLength = Short.toUnsignedInt(index.getShort());
+            if (index.remaining() < keyLength) {
+                break; // torn trailing record
+            }
+            byte[] key = new byte[keyLength];
+            index.get(key);
+
+            Entry entry = new Entry(new String(key, StandardCharsets.UTF_8), segment, offset, length);
+            entries.add(entry);
+            entriesByKey.computeIfAbsent(entry.key(), k -> new ArrayList<>(1)).add(entry);
+        }
+    }
+
+    public int size() { return entries.size(); }
+
+    public List<Entry> entries() { return Collections.unmodifiableList(entries); }
+
+    /**
+     * Returns every PDF stored under {@code key}; a key repeats when the input held the same row twice.
+     */
+    public List<Entry> find(String key) {
+        return entriesByKey.getOrDefault(key, List.of());
+    }
+
+    public Optional<ByteBuffer> read(String key) {
+        List<Entry> matches = find(key);
+        return matches.isEmpty() ? Optional.empty() : Optional.of(read(matches.get(0)));
+    }
+
+    public ByteBuffer read(Entry entry) {
+        MappedByteBuffer segment = segments.get(entry.segment());
+        return segment.slice(Math.toIntExact(entry.offset()), entry.length()).asReadOnlyBuffer();
+    }
+}
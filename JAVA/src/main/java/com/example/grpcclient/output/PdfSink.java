@@ -0,0 +1,22 @@
+package com.example.grpcclient.output;
+
+import com.google.protobuf.ByteString;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination for generated PDFs. Implementations must allow concurrent writers.
+ */
+public interface PdfSink extends Closeable {
+
+    /**
+     * Persists one PDF. {@code key} identifies the request that produced it.
+     */
+    void write(String key, ByteString pdf) throws IOException;
+
+    /**
+     * Forces every PDF written so far to stable storage, so a crash cannot lose them.
+     */
+    void sync() throws IOException;
+}
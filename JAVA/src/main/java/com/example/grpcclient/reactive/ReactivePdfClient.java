@@ -0,0 +1,51 @@
+package com.example.grpcclient.reactive;
+
+import com.example.grpcclient.config.ChannelPool;
+import com.example.grpcclient.config.GrpcClientProperties;
+import com.example.grpcclient.marshal.PooledReplyMarshaller;
+import com.example.grpcclient.proto.GeneratePDFReply;
+import com.example.grpcclient.proto.GeneratePDFRequest;
+import org.reactivestreams.Publisher;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reactive Streams entry point for embedding the client: PDFs are generated from a {@link Publisher}
+ * of requests and delivered through a {@link Publisher} of replies, with no queues in between.
+ *
+ * Subscriber demand is the StreamPDFs call's inbound flow control: {@code request(n)} lets exactly
+ * {@code n} more replies off the wire, so a slow subscriber holds the server back instead of filling
+ * the heap. Requests are pulled from the request publisher while the call can send, at most
+ * {@code reactive-prefetch} ahead.
+ */
+@Service
+public class ReactivePdfClient {
+
+    private final ChannelPool channelPool;
+    private final PooledReplyMarshaller replyMarshaller;
+    private final int prefetch;
+    private final AtomicInteger nextChannel = new AtomicInteger();
+
+    public ReactivePdfClient(ChannelPool channelPool, PooledReplyMarshaller replyMarshaller,
+                             GrpcClientProperties properties) {
+        this.channelPool = channelPool;
+        this.replyMarshaller = replyMarshaller;
+        this.prefetch = properties.reactivePrefetch();
+    }
+
+    /**
+     * Returns a cold publisher: every subscription opens its own StreamPDFs call, on the next channel
+     * of the pool, and subscribes to {@code requests} afresh. Replies arrive in the server's order;
+     * callers that need to match them up set {@code requestId} on their requests.
+     *
+     * Replies are always on the heap, so subscribers may keep them as long as they like.
+     */
+    public Publisher<GeneratePDFReply> generate(Publisher<GeneratePDFRequest> requests) {
+        return subscriber -> {
+            int channel = Math.floorMod(nextChannel.getAndIncrement(), channelPool.size());
+            new StreamPdfsPublisher(channelPool.asyncStub(channel), requests, prefetch, replyMarshaller::onHeap)
+                    .subscribe(subscriber);
+        };
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.grpcclient.reactive;
+
+import com.example.grpcclient.proto.GeneratePDFReply;
+import com.example.grpcclient.proto.GeneratePDFRequest;
+import com.example.grpcclient.proto.MakePDFGrpc;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * One StreamPDFs call per subscription, with both directions under Reactive Streams backpressure.
+ *
+ * Downstream demand is handed to gRPC as inbound flow control. gRPC counts outstanding requests in
+ * an {@code int}, so demand beyond that is held back and released one reply at a time as replies
+ * arrive. Upstream, requests are pulled in windows of {@code prefetch} while the call is ready to send,
+ * and the next window is asked for once half of the last one has been sent.
+ */
+final class StreamPdfsPublisher implements Publisher<GeneratePDFReply> {
+
+    private final MakePDFGrpc.MakePDFStub stub;
+    private final Publisher<GeneratePDFRequest> requests;
+    private final int prefetch;
+    private final UnaryOperator<GeneratePDFReply> toHeap;
+
+    StreamPdfsPublisher(MakePDFGrpc.MakePDFStub stub, Publisher<GeneratePDFRequest> requests, int prefetch,
+                        UnaryOperator<GeneratePDFReply> toHeap) {
+        this.stub = stub;
+        this.requests = requests;
+        this.prefetch = prefetch;
+        this.toHeap = toHeap;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super GeneratePDFReply> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        new Exchange(subscriber).start();
+    }
+
+    private final class Exchange implements Subscription, ClientResponseObserver<GeneratePDFRequest, GeneratePDFReply> {
+
+        private final Subscriber<? super GeneratePDFReply> downstream;
+        private ClientCallStreamObserver<GeneratePDFRequest> call;
+
+        // Guarded by demandLock
+        private final Object demandLock = new Object();
+        private boolean started;
+        private int outstanding;   // Replies requested from gRPC and not yet delivered
+        private long backlog;      // Demand not yet handed to gRPC, saturating at Long.MAX_VALUE
+
+        // Guarded by this: sends, half-close and cancel must not interleave on the call. A half-closed
+        // call can still be cancelled, which is how a subscriber stops one still receiving replies.
+        private boolean halfClosed;
+        private boolean callCancelled;
+        private Subscription upstream;
+        private int upstreamDemand;
+        private boolean upstreamDone;
+
+        private volatile boolean cancelled;
+        private volatile Throwable failure;
+
+        Exchange(Subscriber<? super GeneratePDFReply> downstream) {
+            this.downstream = downstream;
+        }
+
+        void start() {
+            downstream.onSubscribe(this);
+            if (failure != null) {
+                // request() was called with a non-positive count from onSubscribe
+                downstream.onError(failure);
+                return;
+            }
+            if (cancelled) {
+                return;
+            }
+            stub.streamPDFs(this);
+            int initial;
+            synchronized (demandLock) {
+                started = true;
+                initial = (int) Math.min(backlog, Integer.MAX_VALUE);
+                backlog -= initial;
+                outstanding = initial;
+            }
+            if (initial > 0) {
+                call.request(initial);
+            }
+            requests.subscribe(new Upstream());
+        }
+
+        // Subscription, from the downstream subscriber
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Rule 3.9: request count must be positive, was " + n));
+                return;
+            }
+            int grant;
+            synchronized (demandLock) {
+                if (!started) {
+                    backlog = saturatedAdd(backlog, n);
+                    return;
+                }
+                grant = (int) Math.min(n, Integer.MAX_VALUE - outstanding);
+                outstanding += grant;
+                backlog = saturatedAdd(backlog, n - grant);
+            }
+            if (grant > 0) {
+                call.request(grant);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            cancelUpstream();
+            cancelCall("Subscriber cancelled", null);
+        }
+
+        // gRPC call observer
+
+        @Override
+        public void beforeStart(ClientCallStreamObserver<GeneratePDFRequest> requestStream) {
+            call = requestStream;
+            requestStream.disableAutoRequestWithInitial(0);
+            requestStream.setOnReadyHandler(this::pullRequests);
+        }
+
+        @Override
+        public void onNext(GeneratePDFReply reply) {
+            boolean topUp;
+            synchronized (demandLock) {
+                outstanding--;
+                topUp = backlog > 0;
+                if (topUp) {
+                    backlog--;
+                    outstanding++;
+                }
+            }
+            if (topUp) {
+                call.request(1);
+            }
+            GeneratePDFReply onHeap = toHeap.apply(reply);
+            if (!cancelled) {
+                downstream.onNext(onHeap);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            cancelUpstream();
+            if (!cancelled || failure != null) {
+                // The call's CANCELLED status hides the failure that cancelled it
+                downstream.onError(failure != null ? failure : t);
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            cancelUpstream();
+            if (!cancelled) {
+                downstream.onComplete();
+            }
+        }
+
+        // Outbound side, driven by the request publisher and the call's readiness
+
+        private void pullRequests() {
+            Subscription subscription;
+            int more;
+            synchronized (this) {
+                if (upstream == null || upstreamDone || halfClosed || callCancelled || upstreamDemand > prefetch / 2
+                        || !call.isReady()) {
+                    return;
+                }
+                subscription = upstream;
+                more = prefetch - upstreamDemand;
+                upstreamDemand = prefetch;
+            }
+            subscription.request(more);
+        }
+
+        private synchronized void send(GeneratePDFRequest request) {
+            upstreamDemand--;
+            if (!halfClosed && !callCancelled) {
+                call.onNext(request);
+            }
+        }
+
+        private synchronized void halfClose() {
+            upstreamDone = true;
+            if (!halfClosed && !callCancelled) {
+                halfClosed = true;
+                call.onCompleted();
+            }
+        }
+
+        private void cancelCall(String message, Throwable cause) {
+            synchronized (this) {
+                if (callCancelled || call == null) {
+                    return;
+                }
+                callCancelled = true;
+            }
+            call.cancel(message, cause);
+        }
+
+        private void cancelUpstream() {
+            Subscription subscription;
+            synchronized (this) {
+                if (upstreamDone) {
+                    return;
+                }
+                upstreamDone = true;
+                subscription = upstream;
+            }
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+
+        /**
+         * Ends the exchange with {@code t}, reported to the subscriber once the call has closed.
+         */
+        private void fail(Throwable t) {
+            if (failure == null) {
+                failure = t;
+            }
+            cancelled = true;
+            cancelUpstream();
+            cancelCall("Request stream failed", t);
+        }
+
+        private final class Upstream implements Subscriber<GeneratePDFRequest> {
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                boolean accepted;
+                synchronized (Exchange.this) {
+                    accepted = upstream == null && !upstreamDone;
+                    if (accepted) {
+                        upstream = subscription;
+                    }
+                }
+                if (!accepted) {
+                    subscription.cancel();
+                    return;
+                }
+                pullRequests();
+            }
+
+            @Override
+            public void onNext(GeneratePDFRequest request) {
+                send(request);
+                pullRequests();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                synchronized (Exchange.this) {
+                    upstreamDone = true;
+                }
+                fail(t);
+            }
+
+            @Override
+            public void onComplete() {
+                halfClose();
+            }
+        }
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.grpcclient.service;
+
+import com.example.grpcclient.proto.GeneratePDFBatchReply;
+import com.example.grpcclient.proto.GeneratePDFBatchRequest;
+import com.example.grpcclient.proto.GeneratePDFReply;
+import com.example.grpcclient.proto.GeneratePDFRequest;
+import com.example.grpcclient.proto.MakePDFGrpc;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A GeneratePDFBatch call dressed up as a StreamPDFs call, so the streaming pipeline can use it
+ * unchanged.
+ *
+ * Requests are collected into a batch that is sent once it holds {@code maxRows} rows or
+ * {@code maxBytes} of serialized requests, or {@code lingerMicros} after its first row, whichever
+ * comes first. Each batch asks the server to keep reply batches under {@code maxReplyBytes}, so a batch
+ * of large PDFs is split rather than exceeding the inbound message limit. Reply batches are unpacked
+ * into single replies. Inbound flow control is translated the same way: the next reply batch is
+ * requested only once the pipeline has asked for as many replies as the last batch delivered, so the
+ * response byte budget is overshot by at most one reply batch.
+ */
+class BatchingStream extends ClientCallStreamObserver<GeneratePDFRequest> {
+
+    private final ClientResponseObserver<GeneratePDFRequest, GeneratePDFReply> replies;
+    private final int maxRows;
+    private final long maxBytes;
+    private final long maxReplyBytes;
+    private final long lingerMicros;
+    private final ScheduledExecutorService timer;
+    private ClientCallStreamObserver<GeneratePDFBatchRequest> call;
+
+    // Guarded by this: the sender and the linger timer both flush
+    private GeneratePDFBatchRequest.Builder batch;
+    private long batchBytes;
+    private ScheduledFuture<?> lingerFlush;
+
+    private final Object creditLock = new Object();
+    // Replies delivered from the last batch that the pipeline hasn't asked to replace yet
+    private int owedRequests;
+
+    private BatchingStream(ClientResponseObserver<GeneratePDFRequest, GeneratePDFReply> replies,
+                           int maxRows, long maxBytes, long maxReplyBytes, long lingerMicros,
+                           ScheduledExecutorService timer) {
+        this.replies = replies;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.maxReplyBytes = maxReplyBytes;
+        this.lingerMicros = lingerMicros;
+        this.timer = timer;
+        this.batch = newBatch();
+    }
+
+    /**
+     * Starts a GeneratePDFBatch call that {@code replies} sees as a StreamPDFs call.
+     */
+    static void open(MakePDFGrpc.MakePDFStub stub,
+                     ClientResponseObserver<GeneratePDFRequest, GeneratePDFReply> replies,
+                     int maxRows, long maxBytes, long maxReplyBytes, long lingerMicros,
+                     ScheduledExecutorService timer) {
+        stub.generatePDFBatch(
+                new BatchingStream(replies, maxRows, maxBytes, maxReplyBytes, lingerMicros, timer).new Inbound());
+    }
+
+    private GeneratePDFBatchRequest.Builder newBatch() {
+        return GeneratePDFBatchRequest.newBuilder().setMaxReplyBytes(maxReplyBytes);
+    }
+
+    // Outbound: single requests in, batches out
+
+    @Override
+    public synchronized void onNext(GeneratePDFRequest request) {
+        batch.addRequests(request);
+        batchBytes += request.getSerializedSize();
+        if (batch.getRequestsCount() >= maxRows || batchBytes >= maxBytes) {
+            flush();
+        } else if (lingerFlush == null) {
+            lingerFlush = timer.schedule(this::lingerExpired, lingerMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void onCompleted() {
+        flush();
+        call.onCompleted();
+    }
+
+    @Override
+    public synchronized void onError(Throwable t) {
+        cancelLinger();
+        call.onError(t);
+    }
+
+    private synchronized void lingerExpired() {
+        lingerFlush = null;
+        flush();
+    }
+
+    private void flush() {
+        cancelLinger();
+        if (batch.getRequestsCount() == 0) {
+            return;
+        }
+        GeneratePDFBatchRequest full = batch.build();
+        batch = newBatch();
+        batchBytes = 0;
+        call.onNext(full);
+    }
+
+    private void cancelLinger() {
+        if (lingerFlush != null) {
+            lingerFlush.cancel(false);
+            lingerFlush = null;
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return call.isReady();
+    }
+
+    @Override
+    public void setOnReadyHandler(Runnable onReadyHandler) {
+        call.setOnReadyHandler(onReadyHandler);
+    }
+
+    @Override
+    public void cancel(String message, Throwable cause) {
+        synchronized (this) {
+            cancelLinger();
+        }
+        call.cancel(message, cause);
+    }
+
+    @Override
+    public void setMessageCompression(boolean enable) {
+        call.setMessageCompression(enable);
+    }
+
+    @Override
+    public void disableAutoInboundFlowControl() {
+        call.disableAutoInboundFlowControl();
+    }
+
+    @Override
+    public void disableAutoRequestWithInitial(int request) {
+        // However many replies the pipeline asks for up front, one batch is enough to start with
+        call.disableAutoRequestWithInitial(Math.min(request, 1));
+    }
+
+    @Override
+    public void request(int count) {
+        boolean requestNext;
+        synchronized (creditLock) {
+            requestNext = owedRequests > 0 && (owedRequests -= count) <= 0;
+            if (requestNext) {
+                owedRequests = 0;
+            }
+        }
+        if (requestNext) {
+            call.request(1);
+        }
+    }
+
+    /**
+     * The GeneratePDFBatch call's own observer: unpacks reply batches for the pipeline.
+     */
+    private class Inbound implements ClientResponseObserver<GeneratePDFBatchRequest, GeneratePDFBatchReply> {
+
+        @Override
+        public void beforeStart(ClientCallStreamObserver<GeneratePDFBatchRequest> requestStream) {
+            call = requestStream;
+            replies.beforeStart(BatchingStream.this);
+        }
+
+        @Override
+        public void onNext(GeneratePDFBatchReply batchReply) {
+            if (batchReply.getRepliesCount() == 0) {
+                call.request(1);
+                return;
+            }
+            synchronized (creditLock) {
+                owedRequests += batchReply.getRepliesCount();
+            }
+            for (GeneratePDFReply reply : batchReply.getRepliesList()) {
+                replies.onNext(reply);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            synchronized (BatchingStream.this) {
+                cancelLinger();
+            }
+            replies.onError(t);
+        }
+
+        @Override
+        public void onCompleted() {
+            replies.onCompleted();
+        }
+    }
+}
@@ -1,62 +1,146 @@
 package com.example.grpcclient.service;
 
+import com.example.grpcclient.cache.ReplyCache;
+import com.example.grpcclient.config.ChannelPool;
 import com.example.grpcclient.config.GrpcClientProperties;
+import com.example.grpcclient.ingest.CsvIngestionEngine;
+import com.example.grpcclient.journal.CompletionJournal;
+import com.example.grpcclient.marshal.PooledReplyMarshaller;
+import com.example.grpcclient.metrics.PipelineMetrics;
+import com.example.grpcclient.output.FilePerPdfSink;
+import com.example.grpcclient.output.PackFileSink;
+import com.example.grpcclient.output.PdfSink;
 import com.example.grpcclient.proto.GeneratePDFReply;
 import com.example.grpcclient.proto.GeneratePDFRequest;
 import com.example.grpcclient.proto.MakePDFGrpc;
+import com.example.grpcclient.util.AdaptiveConcurrencyLimiter;
+import com.example.grpcclient.util.AdjustableLimit;
+import com.example.grpcclient.util.ByteBudgetQueue;
 import com.example.grpcclient.util.ProgressBar;
+import com.example.grpcclient.util.ResizableBlockingQueue;
+import com.google.protobuf.ByteString;
+import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 import io.grpc.stub.StreamObserver;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.List;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
-public class GrpcClientService {
+public class GrpcClientService implements AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(GrpcClientService.class);
 
     private final MakePDFGrpc.MakePDFBlockingStub blockingStub;
     private final MakePDFGrpc.MakePDFStub asyncStub;
+    private final MakePDFGrpc.MakePDFFutureStub futureStub;
+    private final ChannelPool channelPool;
+    private final PooledReplyMarshaller replyMarshaller;
     private final GrpcClientProperties properties;
+    private final PipelineMetrics metrics;
     private final ProgressBar progressBar;
+    private final ReplyCache replyCache;
+    // Rows whose identical twin is already on the wire, keyed by cache key; served from its reply
+    private final Map<String, Queue<InputRow>> awaitingTwin = new ConcurrentHashMap<>();
 
     // Concurrent processing components
-    private final BlockingQueue<GeneratePDFRequest> requestQueue;
-    private final BlockingQueue<GeneratePDFReply> responseQueue;
+    private final ResizableBlockingQueue<InputRow> requestQueue;
+    private final ByteBudgetQueue<ReplyEnvelope> responseQueue;
+    // Writers allowed to run at once; fixed unless the autotuner adjusts it
+    private final AdjustableLimit writerLimit;
+    private final Queue<StreamShard> pausedShards = new ConcurrentLinkedQueue<>();
     private final ExecutorService executorService;
-    private final AtomicLong counter = new AtomicLong(0);
-    private final AtomicLong numberOfItems = new AtomicLong(0);
-    private final AtomicLong filesWritten = new AtomicLong(0);
+    // Flushes lingering GeneratePDFBatch batches
+    private final ScheduledExecutorService batchTimer;
+    // Bumped from loader, writer and gRPC callback threads, so striped rather than CAS-contended
+    private final LongAdder numberOfItems = new LongAdder();
+    private final LongAdder filesWritten = new LongAdder();
+    // Replies without a PDF; nothing to write, but the row is done
+    private final LongAdder emptyReplies = new LongAdder();
+    private final AtomicLong twinsServed = new AtomicLong(0);
+    private final AtomicLong rowsSkipped = new AtomicLong(0);
+    private final AtomicLong nextRequestId = new AtomicLong(1);
+    // The queues and counters above belong to one run at a time; JobScheduler runs jobs concurrently
+    private final AtomicBoolean runInProgress = new AtomicBoolean();
+
+    // Stage hand-off markers, compared by identity
+    private static final InputRow END_OF_INPUT =
+            new InputRow(InputRow.NO_OFFSET, GeneratePDFRequest.getDefaultInstance());
+    private static final ReplyEnvelope END_OF_STREAM =
+            new ReplyEnvelope(END_OF_INPUT, GeneratePDFReply.getDefaultInstance());
+    private static final long MAX_RECONNECT_BACKOFF_MS = 10_000;
+
+    // State of the run in progress, kept so it can be cancelled from another thread
+    private volatile boolean runCancelled;
+    private volatile List<StreamShard> activeShards = List.of();
+    private volatile UnaryDispatcher activeDispatcher;
+    private volatile CompletionJournal journal;
+    private final List<Future<?>> activeTasks = new CopyOnWriteArrayList<>();
 
     public GrpcClientService(MakePDFGrpc.MakePDFBlockingStub blockingStub,
                            MakePDFGrpc.MakePDFStub asyncStub,
-                           GrpcClientProperties properties) {
+                           MakePDFGrpc.MakePDFFutureStub futureStub,
+                           ChannelPool channelPool,
+                           GrpcClientProperties properties,
+                           PipelineMetrics metrics,
+                           PooledReplyMarshaller replyMarshaller) {
         this.blockingStub = blockingStub;
         this.asyncStub = asyncStub;
+        this.futureStub = futureStub;
+        this.channelPool = channelPool;
         this.properties = properties;
-        this.progressBar = new ProgressBar(properties.showEnhancedProgressBar());
+        this.metrics = metrics;
+        this.replyMarshaller = replyMarshaller;
+        this.progressBar = new ProgressBar(properties.showEnhancedProgressBar(),
+                properties.progressFormat(), properties.progressIntervalMs());
         
         // Initialize concurrent processing components
-        this.requestQueue = new LinkedBlockingQueue<>(properties.channelCapacity());
-        this.responseQueue = new LinkedBlockingQueue<>();
+        this.requestQueue = new ResizableBlockingQueue<>(properties.channelCapacity());
+        this.responseQueue = new ByteBudgetQueue<>(properties.responseBufferBytes(), ReplyEnvelope::payloadBytes);
+        this.writerLimit = new AdjustableLimit(properties.maxDegreeOfParallelism());
         this.executorService = Executors.newVirtualThreadPerTaskExecutor();
+        this.batchTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-linger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.replyCache = properties.cacheEnabled() ? openReplyCache(properties) : null;
+        if (replyCache != null) {
+            replyCache.onWriteCapacity(this::resumePausedShards);
+        }
+
+        metrics.gaugeQueue("requests", "rows", requestQueue, ResizableBlockingQueue::size);
+        metrics.gaugeQueue("responses", "replies", responseQueue, ByteBudgetQueue::size);
+        metrics.gaugeQueue("response.bytes", "bytes", responseQueue, ByteBudgetQueue::usedBytes);
+    }
+
+    private static ReplyCache openReplyCache(GrpcClientProperties properties) {
+        try {
+            // PDFs waiting to be persisted get a budget of their own, the size of the response buffer
+            return new ReplyCache(Paths.get(properties.cachePath()), properties.cacheMemoryBytes(),
+                    properties.responseBufferBytes());
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to open reply cache at " + properties.cachePath(), e);
+        }
     }
 
     public void callUnaryMethod() {
@@ -77,84 +161,200 @@ public class GrpcClientService {
     }
 
     public void callBidirectionalStreaming() {
+        beginRun();
+        try {
+            runStreaming();
+        } finally {
+            runInProgress.set(false);
+        }
+    }
+
+    /**
+     * Generates a PDF per CSV row with individual GeneratePDF calls instead of a stream. The number
+     * of calls in flight adapts to the server's observed latency and error rate.
+     */
+    public void callUnaryBulk() {
+        beginRun();
+        try {
+            runUnaryBulk();
+        } finally {
+            runInProgress.set(false);
+        }
+    }
+
+    private void beginRun() {
+        if (!runInProgress.compareAndSet(false, true)) {
+            throw new IllegalStateException("A run is already in progress; use JobScheduler to run jobs concurrently");
+        }
+    }
+
+    private void runStreaming() {
         System.out.println("\n=== Testing Enhanced Bi-directional Streaming with Concurrent Processing ===");
 
         Instant startTime = Instant.now();
-        // Countdown: request processing + response processing + (PDF writing if enabled)
-        var countdown = new CountDownLatch(properties.writeToDisk() ? 3 : 2);
+        resetRunState();
 
+        final PdfSink sink;
         try {
-            // Create streaming call
-            var responseObserver = new StreamObserver<GeneratePDFReply>() {
-                @Override
-                public void onNext(GeneratePDFReply reply) {
-                    try {
-                        responseQueue.put(reply);
-                        
-                        // If write-to-disk is false, immediately increment counter and update progress
-                        if (!properties.writeToDisk()) {
-                            long currentCount = counter.incrementAndGet();                        
-                            progressBar.updateProgress(currentCount, numberOfItems.get());
-                        }
-                        // If write-to-disk is true, counter will be incremented when file is written
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        logger.error("Response processing interrupted", e);
+            sink = openPdfSink();
+        } catch (IOException e) {
+            logger.error("Failed to create output directory", e);
+            System.out.println("Unable to open output: " + properties.outputPath());
+            return;
+        }
+        journal = openJournal(sink);
+        progressBar.start(numberOfItems::sum);
+        PipelineAutotuner autotuner = startAutotuner();
+
+        List<StreamShard> shards = openShards();
+        activeShards = shards;
+        // Completes once every response stream has ended, normally or not
+        var streamsOpen = new AtomicInteger(shards.size());
+        var responsesCompleted = new CompletableFuture<Void>();
+
+        try {
+            // Every shard drains the shared request queue, so rows spread across the streams
+            List<Future<?>> senderTasks = new ArrayList<>();
+            for (StreamShard shard : shards) {
+                openStream(shard, createResponseObserver(shard, () -> {
+                    if (streamsOpen.decrementAndGet() == 0) {
+                        responsesCompleted.complete(null);
                     }
-                }
+                }));
+                shard.markStarted();
+                senderTasks.add(submitTask(() -> processRequestQueue(shard)));
+            }
 
-                @Override
-                public void onError(Throwable t) {
-                    logger.error("RPC failed", t);
-                    countdown.countDown(); // Signal completion even on error
-                }
+            List<Future<?>> writerTasks = startPDFWriters(sink);
+            // Load and enqueue requests from CSV, then tell every sender there is nothing more to come
+            Future<?> loaderTask = startLoader(shards.size());
+
+            responsesCompleted.thenRun(() -> {
+                // Streams that died early leave the loader and senders with nobody to hand work to
+                loaderTask.cancel(true);
+                senderTasks.forEach(task -> task.cancel(true));
+            });
+
+            responsesCompleted.join();
+            awaitTask(loaderTask);
+            senderTasks.forEach(this::awaitTask);
+            finishPDFWriters(writerTasks);
+
+            if (runCancelled) {
+                System.out.println("Streaming run cancelled.");
+            } else {
+                System.out.println("All streaming operations completed successfully.");
+            }
 
-                @Override
-                public void onCompleted() {
-                    System.out.println("Response stream completed.");
-                    countdown.countDown();
-                }
-            };
+        } catch (Exception e) {
+            logger.error("Unexpected error in bidirectional streaming", e);
+            System.out.println("Unexpected error: " + e.getMessage());
+        } finally {
+            activeShards = List.of();
+            activeTasks.clear();
+            stopAutotuner(autotuner);
+            progressBar.stop();
+            closeJournal();
+            closePdfSink(sink);
+        }
 
-            var requestObserver = asyncStub.streamPDFs(responseObserver);
+        if (shards.size() > 1) {
+            shards.forEach(shard -> System.out.println(shard.summary()));
+        }
+        printRunSummary(startTime);
+    }
 
-            // Start concurrent tasks
-            CompletableFuture<Void> requestTask = CompletableFuture.runAsync(() -> {
-                try {
-                    processRequestQueue(requestObserver);
-                } finally {
-                    countdown.countDown();
-                }
-            }, executorService);
+    private void runUnaryBulk() {
+        System.out.println("\n=== Bulk Unary Calls with Adaptive Concurrency ===");
 
-            CompletableFuture<Void> pdfWriterTask = properties.writeToDisk() ? 
-                CompletableFuture.runAsync(() -> {
-                    try {
-                        processPDFWriter();
-                    } finally {
-                        countdown.countDown();
-                    }
-                }, executorService) : 
-                CompletableFuture.completedFuture(null);
+        Instant startTime = Instant.now();
+        resetRunState();
 
-            // Load and enqueue requests from CSV
-            loadRequestsFromCsv();
+        final PdfSink sink;
+        try {
+            sink = openPdfSink();
+        } catch (IOException e) {
+            logger.error("Failed to create output directory", e);
+            System.out.println("Unable to open output: " + properties.outputPath());
+            return;
+        }
+        journal = openJournal(sink);
+        progressBar.start(numberOfItems::sum);
+        PipelineAutotuner autotuner = startAutotuner();
 
-            // Wait for all tasks to complete (with timeout)
-            if (!countdown.await(5, TimeUnit.MINUTES)) {
-                logger.warn("Streaming operations timed out");
-            }
+        var limiter = new AdaptiveConcurrencyLimiter(
+                properties.unaryInitialConcurrency(), 1, properties.unaryMaxConcurrency());
+        var dispatcher = new UnaryDispatcher(futureStub, limiter, executorService, metrics, this::handleReply);
+        activeDispatcher = dispatcher;
 
-            requestTask.join();
-            if (properties.writeToDisk()) {
-                pdfWriterTask.join();
-            }
+        try {
+            List<Future<?>> writerTasks = startPDFWriters(sink);
+            Future<?> loaderTask = startLoader(1);
+            Future<?> dispatchTask = submitTask(() -> {
+                try {
+                    while (true) {
+                        InputRow row = requestQueue.take();
+                        if (row == END_OF_INPUT) {
+                            break;
+                        }
+                        // Don't start calls whose replies the writers have no room for
+                        responseQueue.awaitCapacity();
+                        if (replyCache != null) {
+                            replyCache.awaitWriteCapacity();
+                        }
+                        dispatcher.dispatch(row);
+                    }
+                    dispatcher.awaitCompletion();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
 
-            System.out.println("All streaming operations completed successfully.");
+            awaitTask(dispatchTask);
+            loaderTask.cancel(true);
+            awaitTask(loaderTask);
+            finishPDFWriters(writerTasks);
 
+            if (runCancelled) {
+                System.out.println("Unary run cancelled.");
+            } else {
+                System.out.println("All unary calls completed.");
+            }
         } catch (Exception e) {
-            logger.error("Unexpected error in bidirectional streaming", e);
+            logger.error("Unexpected error in bulk unary calls", e);
             System.out.println("Unexpected error: " + e.getMessage());
+        } finally {
+            activeDispatcher = null;
+            activeTasks.clear();
+            stopAutotuner(autotuner);
+            progressBar.stop();
+            closeJournal();
+            closePdfSink(sink);
+        }
+
+        System.out.println(limiter.summary());
+        System.out.printf("Failed calls: %,d, retried calls: %,d%n", dispatcher.failures(), dispatcher.retries());
+        printRunSummary(startTime);
+    }
+
+    private void printRunSummary(Instant startTime) {
+        if (properties.metricsEnabled()) {
+            System.out.println(metrics.summary());
+            metrics.runFinished();
+        }
+        if (replyCache != null) {
+            flushReplyCache();
+            System.out.println(replyCache.summary());
+            System.out.printf("Duplicate rows served from in-flight replies: %,d%n", twinsServed.get());
+        }
+        if (properties.pooledReplyBuffers()) {
+            System.out.println(replyMarshaller.summary());
+        }
+        if (emptyReplies.sum() > 0) {
+            System.out.printf("Replies without a PDF: %,d%n", emptyReplies.sum());
+        }
+        if (rowsSkipped.get() > 0) {
+            System.out.printf("Rows skipped as already completed: %,d%n", rowsSkipped.get());
         }
 
         Duration elapsed = Duration.between(startTime, Instant.now());
@@ -165,156 +365,584 @@ public class GrpcClientService {
                 elapsed.toMillisPart());
     }
 
-    private void processRequestQueue(StreamObserver<GeneratePDFRequest> requestObserver) {
+    private PdfSink openPdfSink() throws IOException {
+        if (!properties.writeToDisk()) {
+            return null;
+        }
+        Path outputPath = Paths.get(properties.outputPath());
+        Files.createDirectories(outputPath);
+        return createPdfSink(outputPath);
+    }
+
+    /**
+     * Opens the completion journal for this run's input, if journaling applies: only rows written
+     * to disk count as completed, and only rows read from the CSV have a stable identity.
+     */
+    private CompletionJournal openJournal(PdfSink sink) {
+        Path input = Paths.get(properties.inputPath());
+        if (!properties.journalEnabled() || sink == null || !Files.exists(input)) {
+            return null;
+        }
         try {
-            while (true) {
-                GeneratePDFRequest request = requestQueue.poll(100, TimeUnit.MILLISECONDS);
-                if (request == null) {
-                    // Check if we're done loading requests
-                    if (numberOfItems.get() > 0 && requestQueue.isEmpty()) {
-                        break;
+            CompletionJournal opened = CompletionJournal.open(Paths.get(properties.journalPath()), input,
+                    Duration.ofMillis(properties.journalSyncIntervalMs()), properties.journalSyncBatch(), sink::sync);
+            if (opened.recoveredRows() > 0) {
+                System.out.printf("Resuming: %,d rows already completed according to %s%n",
+                        opened.recoveredRows(), opened.path());
+            }
+            return opened;
+        } catch (IOException e) {
+            logger.error("Unable to open journal at {}; continuing without it", properties.journalPath(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Commits the journal's last group. It is removed once every row of the input has been written,
+     * so the next run starts from scratch; otherwise it is kept for the next run to resume from.
+     */
+    private void closeJournal() {
+        CompletionJournal completed = journal;
+        if (completed == null) {
+            return;
+        }
+        journal = null;
+        try {
+            if (!runCancelled && filesWritten.sum() + emptyReplies.sum() == numberOfItems.sum()) {
+                completed.delete();
+            } else {
+                completed.close();
+                System.out.printf("Journal kept at %s (%,d rows committed this run); rerun to resume.%n",
+                        completed.path(), completed.committedRows());
+            }
+        } catch (IOException e) {
+            logger.error("Failed to close journal {}", completed.path(), e);
+        }
+    }
+
+    private List<Future<?>> startPDFWriters(PdfSink sink) {
+        List<Future<?>> writerTasks = new ArrayList<>();
+        if (properties.writeToDisk()) {
+            // With the autotuner, idle writers wait on the limit until it is raised; virtual threads make that cheap
+            int writers = properties.autotune() ? properties.autotuneMaxWriters() : properties.maxDegreeOfParallelism();
+            for (int i = 0; i < writers; i++) {
+                writerTasks.add(submitTask(() -> processPDFWriter(sink)));
+            }
+        }
+        return writerTasks;
+    }
+
+    /**
+     * Lets the writers drain what is queued and exit, or stops them outright if the run was cancelled.
+     */
+    private void finishPDFWriters(List<Future<?>> writerTasks) {
+        if (runCancelled) {
+            writerTasks.forEach(task -> task.cancel(true));
+        } else {
+            writerTasks.forEach(task -> responseQueue.add(END_OF_STREAM));
+        }
+        writerTasks.forEach(this::awaitTask);
+        discardUnwrittenReplies();
+    }
+
+    /**
+     * Frees replies a cancelled run left queued, so their buffers and byte budget don't leak into
+     * the next run.
+     */
+    private void discardUnwrittenReplies() {
+        try {
+            ReplyEnvelope envelope;
+            while ((envelope = responseQueue.poll(0, TimeUnit.MILLISECONDS)) != null) {
+                replyMarshaller.release(envelope.reply());
+                responseQueue.release(envelope);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts the autotuner if enabled. Every run starts from the configured values.
+     */
+    private PipelineAutotuner startAutotuner() {
+        if (!properties.autotune()) {
+            return null;
+        }
+        var autotuner = new PipelineAutotuner(properties, requestQueue, responseQueue,
+                properties.writeToDisk() ? writerLimit : null, progressBar::completed, this::resumePausedShards);
+        autotuner.start();
+        return autotuner;
+    }
+
+    private void stopAutotuner(PipelineAutotuner autotuner) {
+        if (autotuner != null) {
+            autotuner.stop();
+            System.out.println(autotuner.summary());
+        }
+    }
+
+    private Future<?> startLoader(int consumers) {
+        return submitTask(() -> {
+            try {
+                loadRequestsFromCsv();
+                signalEndOfInput(consumers);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * Cancels the streaming run in progress, if any. The RPCs are cancelled and every pipeline
+     * stage is interrupted; {@link #callBidirectionalStreaming()} returns once they have stopped.
+     */
+    public void cancel() {
+        runCancelled = true;
+        for (StreamShard shard : activeShards) {
+            var requestStream = shard.requestStream();
+            if (requestStream != null) {
+                requestStream.cancel("Run cancelled by client", null);
+            }
+        }
+        UnaryDispatcher dispatcher = activeDispatcher;
+        if (dispatcher != null) {
+            dispatcher.cancel();
+        }
+        activeTasks.forEach(task -> task.cancel(true));
+    }
+
+    private void resetRunState() {
+        runCancelled = false;
+        requestQueue.clear();
+        requestQueue.setCapacity(properties.channelCapacity());
+        responseQueue.setMaxBytes(properties.responseBufferBytes());
+        writerLimit.setLimit(properties.maxDegreeOfParallelism());
+        pausedShards.clear();
+        awaitingTwin.clear();
+        numberOfItems.reset();
+        filesWritten.reset();
+        emptyReplies.reset();
+        twinsServed.set(0);
+        rowsSkipped.set(0);
+        progressBar.reset();
+        if (replyCache != null) {
+            replyCache.resetStats();
+        }
+    }
+
+    /**
+     * Persists what the reply cache still holds and stops the pipeline's threads.
+     */
+    @Override
+    public void close() {
+        if (replyCache != null) {
+            replyCache.close();
+        }
+        batchTimer.shutdownNow();
+        executorService.shutdownNow();
+    }
+
+    private void flushReplyCache() {
+        try {
+            replyCache.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private PdfSink createPdfSink(Path outputPath) throws IOException {
+        return switch (properties.outputFormat()) {
+            // Only the journal syncs the output
+            case FILES -> new FilePerPdfSink(outputPath, properties.journalEnabled());
+            case PACK -> new PackFileSink(outputPath, properties.packSegmentBytes());
+        };
+    }
+
+    private void closePdfSink(PdfSink sink) {
+        if (sink == null) {
+            return;
+        }
+        try {
+            sink.close();
+        } catch (IOException e) {
+            logger.error("Failed to close PDF output", e);
+        }
+    }
+
+    private Future<?> submitTask(Runnable task) {
+        Future<?> future = executorService.submit(task);
+        activeTasks.add(future);
+        return future;
+    }
+
+    private void awaitTask(Future<?> task) {
+        try {
+            task.get();
+        } catch (CancellationException ignored) {
+            // Cancelled because the run ended or was cancelled
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Pipeline stage failed", e.getCause());
+        }
+    }
+
+    private void signalEndOfInput(int senders) throws InterruptedException {
+        for (int i = 0; i < senders; i++) {
+            requestQueue.put(END_OF_INPUT);
+        }
+    }
+
+    private List<StreamShard> openShards() {
+        List<StreamShard> shards = new ArrayList<>();
+        for (int i = 0; i < channelPool.size(); i++) {
+            // Without a pool, keep using the injected stub so a single-channel run is unchanged
+            var stub = channelPool.size() == 1 ? asyncStub : channelPool.asyncStub(i);
+            shards.add(new StreamShard(i, stub));
+        }
+        if (shards.size() > 1) {
+            System.out.printf("Streaming across %d channels.%n", shards.size());
+        }
+        return shards;
+    }
+
+    /**
+     * Starts the shard's call: StreamPDFs, or in batched mode a GeneratePDFBatch call that looks the
+     * same to the observer.
+     */
+    private void openStream(StreamShard shard, ClientResponseObserver<GeneratePDFRequest, GeneratePDFReply> observer) {
+        if (properties.callMode() == GrpcClientProperties.CallMode.BATCHED) {
+            BatchingStream.open(shard.stub(), observer, properties.batchMaxRows(), properties.batchMaxBytes(),
+                    properties.batchMaxReplyBytes(), properties.batchLingerMicros(), batchTimer);
+        } else {
+            shard.stub().streamPDFs(observer);
+        }
+    }
+
+    private ClientResponseObserver<GeneratePDFRequest, GeneratePDFReply> createResponseObserver(
+            StreamShard shard, Runnable onStreamEnded) {
+        return new ClientResponseObserver<>() {
+            @Override
+            public void beforeStart(ClientCallStreamObserver<GeneratePDFRequest> requestStream) {
+                shard.attach(requestStream);
+                // Replies are pulled one at a time while the response buffer has budget left
+                requestStream.disableAutoRequestWithInitial(1);
+            }
+
+            @Override
+            public void onNext(GeneratePDFReply reply) {
+                StreamShard.Sent sent = shard.recordReceived(reply);
+                if (sent != null) {
+                    metrics.recordRoundTrip(System.nanoTime() - sent.sentNanos());
+                    handleReply(sent.row(), reply);
+                } else {
+                    replyMarshaller.release(reply);
+                    logger.warn("Shard {} got a reply matching no unanswered request (id {})",
+                            shard.index(), reply.getRequestId());
+                }
+
+                if (properties.writeToDisk() || replyCache != null) {
+                    requestNextReply(shard);
+                } else {
+                    // Nothing consumes the replies, so keep pulling
+                    shard.requestStream().request(1);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                if (!runCancelled && TransientFailures.isTransient(t)) {
+                    int failures = shard.recordFailure();
+                    if (failures <= properties.streamReconnectAttempts()) {
+                        long delayMs = reconnectBackoffMs(failures);
+                        logger.warn("Stream on shard {} failed ({}); reconnecting in {} ms with {} unanswered requests",
+                                shard.index(), Status.fromThrowable(t), delayMs, shard.unanswered());
+                        CompletableFuture.runAsync(() -> reconnect(shard, onStreamEnded),
+                                CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS, executorService));
+                        return;
                     }
-                    continue;
                 }
+                if (!runCancelled) {
+                    logger.error("RPC failed on shard {} with {} unanswered requests",
+                            shard.index(), shard.unanswered(), t);
+                }
+                shard.markCompleted();
+                onStreamEnded.run(); // Signal completion even on error
+            }
+
+            @Override
+            public void onCompleted() {
+                shard.markCompleted();
+                System.out.println("Response stream completed.");
+                onStreamEnded.run();
+            }
+        };
+    }
+
+    /**
+     * Replaces a shard's failed call and resends what it left unanswered. The shard's sender keeps
+     * draining the request queue onto the new call as soon as it is ready.
+     */
+    private void reconnect(StreamShard shard, Runnable onStreamEnded) {
+        if (runCancelled) {
+            shard.markCompleted();
+            onStreamEnded.run();
+            return;
+        }
+        int resent = shard.reopen(() -> openStream(shard, createResponseObserver(shard, onStreamEnded)));
+        if (runCancelled) {
+            // cancel() may have run while the new call was starting
+            shard.requestStream().cancel("Run cancelled by client", null);
+        }
+        System.out.printf("Shard %d reconnected, resent %,d unanswered requests.%n", shard.index(), resent);
+    }
+
+    /**
+     * Exponential backoff with +/-20% jitter, so shards that failed together don't reconnect in lockstep.
+     */
+    private long reconnectBackoffMs(int failures) {
+        long base = properties.streamReconnectBackoffMs() << Math.min(failures - 1, 16);
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return (long) (Math.min(base, MAX_RECONNECT_BACKOFF_MS) * jitter);
+    }
+
+    /**
+     * Hands a fresh reply to the writers (or just counts it) and records it in the reply cache.
+     * Called on gRPC callback threads, so it never blocks.
+     */
+    private void handleReply(InputRow row, GeneratePDFReply reply) {
+        if (replyCache != null) {
+            // Cached PDFs and twins outlive the write, so they can't alias pooled buffers
+            reply = replyMarshaller.onHeap(reply);
+            cacheReply(row.request(), reply);
+        }
+
+        if (properties.writeToDisk()) {
+            // Progress advances when the file is written
+            responseQueue.add(new ReplyEnvelope(row, reply));
+        } else {
+            replyMarshaller.release(reply);
+            progressBar.increment();
+        }
+    }
+
+    /**
+     * Asks the shard for its next reply if the response buffer and the reply cache's pending disk
+     * writes still have budget, otherwise parks the shard until a writer releases bytes.
+     */
+    private void requestNextReply(StreamShard shard) {
+        if (hasReplyCapacity()) {
+            shard.requestStream().request(1);
+            return;
+        }
+        pausedShards.add(shard);
+        // A writer may have freed budget between the check and the park
+        resumePausedShards();
+    }
+
+    private boolean hasReplyCapacity() {
+        return responseQueue.hasCapacity() && (replyCache == null || replyCache.hasWriteCapacity());
+    }
 
-                requestObserver.onNext(request);
+    private void resumePausedShards() {
+        while (hasReplyCapacity()) {
+            StreamShard shard = pausedShards.poll();
+            if (shard == null) {
+                return;
+            }
+            shard.requestStream().request(1);
+        }
+    }
+
+    /**
+     * Sends queued requests only while the transport reports ready, so outbound buffering stays
+     * bounded by gRPC's flow-control window. While the stream is not ready the queue is left to
+     * fill up, which in turn blocks the CSV loader on {@code requestQueue.put}. A failed call never
+     * reports ready again, so the sender also waits out a reconnect.
+     */
+    private void processRequestQueue(StreamShard shard) {
+        boolean endOfInput = false;
+        try {
+            while (shard.awaitReady()) {
+                InputRow row = requestQueue.take();
+                if (row == END_OF_INPUT) {
+                    endOfInput = true;
+                    break;
+                }
+
+                long sendStart = System.nanoTime();
+                shard.send(row, nextRequestId.getAndIncrement());
+                metrics.recordSend(System.nanoTime() - sendStart);
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            logger.error("Request processing interrupted", e);
         } catch (Exception e) {
             logger.error("Error in request processing", e);
+            // Fail the call, otherwise the server would wait for more requests forever
+            shard.requestStream().onError(e);
         } finally {
-            requestObserver.onCompleted();
-            System.out.println("Request stream completed.");
+            if (endOfInput) {
+                shard.halfClose();
+                System.out.println("Request stream completed.");
+            }
         }
     }
 
-    private void processPDFWriter() {
-        if (!properties.writeToDisk()) return;
-
-        Path outputPath = Paths.get(properties.outputPath());
+    private void processPDFWriter(PdfSink sink) {
         try {
-            Files.createDirectories(outputPath);
-            //logger.info("Created output directory: {}", outputPath.toAbsolutePath());
-        } catch (IOException e) {
-            logger.error("Failed to create output directory", e);
-            return;
-        }
+            while (true) {
+                writerLimit.acquire();
+                try {
+                    ReplyEnvelope envelope = responseQueue.take();
+                    if (envelope == END_OF_STREAM) {
+                        return;
+                    }
 
-        // Create worker threads for parallel PDF writing
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
-        for (int i = 0; i < properties.maxDegreeOfParallelism(); i++) {
-            CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                while (!Thread.currentThread().isInterrupted()) {
                     try {
-                        GeneratePDFReply reply = responseQueue.poll(100, TimeUnit.MILLISECONDS);
-                        if (reply == null) {
-                            // When write-to-disk is true, use filesWritten counter for completion check
-                            if (filesWritten.get() >= numberOfItems.get() && numberOfItems.get() > 0) {
-                                break;
-                            }
-                            continue;
-                        }
-
-                        if (!reply.getPdf().isEmpty()) {
-                            writePDFToDisk(reply.getPdf().toByteArray(), outputPath);
+                        if (!envelope.reply().getPdf().isEmpty()) {
+                            writePDFToDisk(sink, envelope);
+                        } else {
+                            completedEmpty(envelope);
                         }
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
                     } catch (Exception e) {
                         logger.error("Error processing PDF", e);
+                    } finally {
+                        replyMarshaller.release(envelope.reply());
+                        responseQueue.release(envelope);
+                        resumePausedShards();
                     }
+                } finally {
+                    writerLimit.release();
                 }
-            }, executorService);
-            futures.add(future);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-
-       // logger.info("Started {} PDF writing workers", futures.size());
-
-        // Wait for all PDF writers to complete
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-        
-        // logger.info("PDF writing completed. Total files written: {} to {}", 
-        //             filesWritten.get(), outputPath.toAbsolutePath());
     }
 
-    private void writePDFToDisk(byte[] pdfData, Path outputPath) {
+    private void writePDFToDisk(PdfSink sink, ReplyEnvelope envelope) {
         try {
-            String fileName = "pdf_" + UUID.randomUUID() + ".pdf";
-            Path filePath = outputPath.resolve(fileName);
-
-            Files.write(filePath, pdfData);
-            long fileCount = filesWritten.incrementAndGet();
-            
-            // When write-to-disk is true, increment counter and update progress after successful write
-            if (properties.writeToDisk()) {
-                long currentCount = counter.incrementAndGet();
-                progressBar.updateProgress(currentCount, numberOfItems.get());
+            long writeStart = System.nanoTime();
+            sink.write(envelope.key(), envelope.reply().getPdf());
+            metrics.recordWrite(System.nanoTime() - writeStart);
+            filesWritten.increment();
+            CompletionJournal activeJournal = journal;
+            if (activeJournal != null) {
+                activeJournal.record(envelope.row().offset());
             }
             
-            if (fileCount % 1000 == 0 || fileCount <= 10) {
-               // logger.info("Written {} PDF files to {}", fileCount, outputPath);
+            // When write-to-disk is true, progress advances after the successful write
+            if (properties.writeToDisk()) {
+                progressBar.increment();
             }
         } catch (IOException e) {
             logger.error("Error saving PDF", e);
         }
     }
 
-    private void loadRequestsFromCsv() {
-        final String csvPath = "./names.csv";
-        Path path = Paths.get(csvPath);
+    private void completedEmpty(ReplyEnvelope envelope) {
+        emptyReplies.increment();
+        CompletionJournal activeJournal = journal;
+        if (activeJournal != null) {
+            activeJournal.record(envelope.row().offset());
+        }
+        progressBar.increment();
+    }
+
+    /**
+     * Queues a row for sending, unless the reply cache already holds its PDF, in which case the
+     * cached reply goes straight to the writers without touching the network. A row identical to
+     * one still awaiting its reply is not sent either; it is served when that reply arrives.
+     */
+    private void enqueueRequest(InputRow row) throws InterruptedException {
+        numberOfItems.increment();
+        if (replyCache != null) {
+            String key = ReplyCache.keyFor(row.request());
+            Optional<ByteString> cached = replyCache.get(key);
+            if (cached.isPresent()) {
+                deliverCachedReply(row, GeneratePDFReply.newBuilder().setPdf(cached.get()).build());
+                return;
+            }
+
+            boolean[] firstOfKey = {false};
+            awaitingTwin.compute(key, (k, twins) -> {
+                if (twins == null) {
+                    firstOfKey[0] = true;
+                    return new ConcurrentLinkedQueue<>();
+                }
+                twins.add(row);
+                return twins;
+            });
+            if (!firstOfKey[0]) {
+                twinsServed.incrementAndGet();
+                return;
+            }
+        }
+        requestQueue.put(row);
+    }
+
+    private void cacheReply(GeneratePDFRequest request, GeneratePDFReply reply) {
+        String key = ReplyCache.keyFor(request);
+        if (!reply.getPdf().isEmpty()) {
+            replyCache.put(key, reply.getPdf());
+        }
+        Queue<InputRow> twins = awaitingTwin.remove(key);
+        if (twins == null) {
+            return;
+        }
+        for (InputRow twin : twins) {
+            if (properties.writeToDisk()) {
+                // Runs on the gRPC callback thread, so never block; twins share the same PDF bytes
+                responseQueue.add(new ReplyEnvelope(twin, reply));
+            } else {
+                progressBar.increment();
+            }
+        }
+    }
+
+    private void deliverCachedReply(InputRow row, GeneratePDFReply reply) throws InterruptedException {
+        if (properties.writeToDisk()) {
+            // Blocks while the writers are behind, just like a paused stream would
+            responseQueue.put(new ReplyEnvelope(row, reply));
+        } else {
+            progressBar.increment();
+        }
+    }
+
+    private void loadRequestsFromCsv() throws InterruptedException {
+        Path path = Paths.get(properties.inputPath());
 
         try {
             System.out.println("Loading requests from CSV...");
 
             if (!Files.exists(path)) {
-                System.out.println("CSV file not found at: " + csvPath);
+                System.out.println("CSV file not found at: " + path);
                 System.out.println("Adding sample requests instead...");
                 addSampleRequests();
                 return;
             }
 
-            try (FileReader reader = new FileReader(path.toFile())) {
-                var csvFormat = CSVFormat.DEFAULT.builder()
-                        .setIgnoreEmptyLines(true)
-                        .setTrim(true)
-                        .build();
-
-                var csvRecords = csvFormat.parse(reader);
-
-                for (CSVRecord record : csvRecords) {
-                    if (record.size() >= 2) {
-                        String lastName = record.get(0).trim();
-                        String firstName = record.get(1).trim();
-
-                        if (!lastName.isEmpty() && !firstName.isEmpty()) {
-                            var request = GeneratePDFRequest.newBuilder()
-                                    .setFirstName(firstName)
-                                    .setLastName(lastName)
-                                    .build();
-
-                            requestQueue.put(request);
-                            numberOfItems.incrementAndGet();
-                        }
-                    }
+            var ingestionEngine = new CsvIngestionEngine(properties.ingestParallelism(), properties.ingestChunkBytes(),
+                    (rows, parseNanos) -> metrics.recordParse(parseNanos));
+            CompletionJournal activeJournal = journal;
+            ingestionEngine.ingest(path, (offset, request) -> {
+                if (activeJournal != null && activeJournal.isCompleted(offset)) {
+                    rowsSkipped.incrementAndGet();
+                    return;
                 }
-            }
+                enqueueRequest(new InputRow(offset, request));
+            });
 
-            System.out.printf("Successfully queued %d requests from CSV.%n", numberOfItems.get());
+            System.out.printf("Successfully queued %d requests from CSV.%n", numberOfItems.sum());
 
         } catch (IOException e) {
             logger.error("Error reading CSV file", e);
             System.out.println("Error loading CSV: " + e.getMessage());
             addSampleRequests();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            logger.error("Loading interrupted", e);
         }
     }
 
-    private void addSampleRequests() {
+    private void addSampleRequests() throws InterruptedException {
         var sampleRequests = List.of(
                 GeneratePDFRequest.newBuilder().setFirstName("Alice").setLastName("Smith").build(),
                 GeneratePDFRequest.newBuilder().setFirstName("Bob").setLastName("Johnson").build(),
@@ -322,15 +950,9 @@ public class GrpcClientService {
                 GeneratePDFRequest.newBuilder().setFirstName("Diana").setLastName("Wilson").build()
         );
 
-        try {
-            for (var request : sampleRequests) {
-                requestQueue.put(request);
-                numberOfItems.incrementAndGet();
-            }
-            System.out.println("Added " + sampleRequests.size() + " sample requests.");
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            logger.error("Sample request loading interrupted", e);
+        for (var request : sampleRequests) {
+            enqueueRequest(new InputRow(InputRow.NO_OFFSET, request));
         }
+        System.out.println("Added " + sampleRequests.size() + " sample requests.");
     }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.example.grpcclient.service;
+
+import com.example.grpcclient.proto.GeneratePDFRequest;
+
+/**
+ * A request together with the CSV offset of the row it was parsed from, which identifies the row
+ * across runs. Rows that did not come from the input file have {@link #NO_OFFSET}.
+ */
+record InputRow(long offset, GeneratePDFRequest request) {
+
+    static final long NO_OFFSET = -1;
+}
@@ -0,0 +1,287 @@
+package com.example.grpcclient.service;
+
+import com.example.grpcclient.config.ChannelPool;
+import com.example.grpcclient.config.GrpcClientProperties;
+import com.example.grpcclient.marshal.PooledReplyMarshaller;
+import com.example.grpcclient.metrics.PipelineMetrics;
+import com.example.grpcclient.proto.GeneratePDFReply;
+import com.example.grpcclient.proto.GeneratePDFRequest;
+import com.example.grpcclient.proto.MakePDFGrpc;
+import io.grpc.Status;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * One PDF per call for applications that embed the client, without paying for an RPC per PDF.
+ *
+ * Every {@link #submit(GeneratePDFRequest)} is multiplexed onto one of {@code multiplex-streams}
+ * long-lived StreamPDFs calls, spread over the channel pool, and its reply is matched back by request
+ * id. Streams open on first use. When one fails with a transient status it is reopened with backoff and
+ * sent the requests it left unanswered, like the batch pipeline's shards; any other failure fails the
+ * unanswered futures and the stream reopens on the next submit.
+ */
+@Service
+public class MultiplexedPdfClient implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MultiplexedPdfClient.class);
+    private static final long MAX_RECONNECT_BACKOFF_MS = 10_000;
+
+    private final GrpcClientProperties properties;
+    private final PipelineMetrics metrics;
+    private final PooledReplyMarshaller replyMarshaller;
+    private final List<Lane> lanes;
+    private final Semaphore inFlight;
+    private final AtomicLong nextRequestId = new AtomicLong(1);
+    private final AtomicInteger nextLane = new AtomicInteger();
+    private volatile boolean closed;
+
+    public MultiplexedPdfClient(ChannelPool channelPool, GrpcClientProperties properties, PipelineMetrics metrics,
+                                PooledReplyMarshaller replyMarshaller) {
+        this.properties = properties;
+        this.metrics = metrics;
+        this.replyMarshaller = replyMarshaller;
+        this.lanes = IntStream.range(0, properties.multiplexStreams())
+                .mapToObj(i -> new Lane(i, channelPool.asyncStub(i % channelPool.size())))
+                .toList();
+        this.inFlight = new Semaphore(properties.multiplexMaxInFlight());
+    }
+
+    /**
+     * Sends {@code request} and returns its reply. Never blocks: beyond {@code multiplex-max-in-flight}
+     * unanswered requests the future fails at once with {@code RESOURCE_EXHAUSTED}. Apply a timeout with
+     * {@link CompletableFuture#orTimeout}; the request stays on its stream until the server answers it.
+     */
+    public CompletableFuture<GeneratePDFReply> submit(GeneratePDFRequest request) {
+        if (closed) {
+            return closedFailure();
+        }
+        if (!inFlight.tryAcquire()) {
+            return CompletableFuture.failedFuture(Status.RESOURCE_EXHAUSTED
+                    .withDescription(properties.multiplexMaxInFlight() + " requests already in flight")
+                    .asRuntimeException());
+        }
+        return send(request);
+    }
+
+    /**
+     * Like {@link #submit(GeneratePDFRequest)}, but waits for one of the {@code multiplex-max-in-flight}
+     * slots instead of failing with {@code RESOURCE_EXHAUSTED}, for callers that would rather be paced
+     * by other users of the client than lose the request.
+     */
+    public CompletableFuture<GeneratePDFReply> submitWhenAvailable(GeneratePDFRequest request)
+            throws InterruptedException {
+        if (closed) {
+            return closedFailure();
+        }
+        inFlight.acquire();
+        if (closed) {
+            inFlight.release();
+            return closedFailure();
+        }
+        return send(request);
+    }
+
+    private static CompletableFuture<GeneratePDFReply> closedFailure() {
+        return CompletableFuture.failedFuture(Status.UNAVAILABLE.withDescription("Client is closed").asRuntimeException());
+    }
+
+    /**
+     * Sends a request that holds an in-flight slot.
+     */
+    private CompletableFuture<GeneratePDFReply> send(GeneratePDFRequest request) {
+        CompletableFuture<GeneratePDFReply> reply = new CompletableFuture<>();
+        reply.whenComplete((r, t) -> inFlight.release());
+        long requestId = nextRequestId.getAndIncrement();
+        lanes.get(Math.floorMod(nextLane.getAndIncrement(), lanes.size()))
+                .send(requestId, new Pending(request, reply, System.nanoTime()));
+        return reply;
+    }
+
+    /**
+     * Half-closes every stream; requests already sent still get their replies.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Lane lane : lanes) {
+            lane.halfClose();
+        }
+    }
+
+    private record Pending(GeneratePDFRequest request, CompletableFuture<GeneratePDFReply> reply, long sentNanos) {
+    }
+
+    /**
+     * One long-lived stream and the requests sent on it that are still unanswered.
+     */
+    private final class Lane {
+
+        private final int index;
+        private final MakePDFGrpc.MakePDFStub stub;
+        // Unanswered requests by request id; ids grow in send order, so the first entry is the oldest
+        private final ConcurrentSkipListMap<Long, Pending> unanswered = new ConcurrentSkipListMap<>();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+        // Guarded by this: null while no call is open
+        private ClientCallStreamObserver<GeneratePDFRequest> call;
+        private boolean reconnectScheduled;
+
+        Lane(int index, MakePDFGrpc.MakePDFStub stub) {
+            this.index = index;
+            this.stub = stub;
+        }
+
+        synchronized void send(long requestId, Pending pending) {
+            unanswered.put(requestId, pending);
+            if (call != null) {
+                call.onNext(stamped(pending.request(), requestId));
+            } else if (!reconnectScheduled) {
+                open();
+            }
+            // Otherwise the reconnect sends it along with the rest
+        }
+
+        synchronized void halfClose() {
+            if (call != null) {
+                call.onCompleted();
+            }
+        }
+
+        /**
+         * Starts a new call and sends it every unanswered request, oldest first. Caller holds the lock.
+         */
+        private void open() {
+            stub.streamPDFs(new ClientResponseObserver<GeneratePDFRequest, GeneratePDFReply>() {
+                private ClientCallStreamObserver<GeneratePDFRequest> self;
+
+                @Override
+                public void beforeStart(ClientCallStreamObserver<GeneratePDFRequest> requestStream) {
+                    self = requestStream;
+                    call = requestStream;
+                }
+
+                @Override
+                public void onNext(GeneratePDFReply reply) {
+                    received(reply);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    ended(self, t);
+                }
+
+                @Override
+                public void onCompleted() {
+                    ended(self, null);
+                }
+            });
+            if (call == null) {
+                return; // Failed while starting, on a direct executor; ended() has dealt with it
+            }
+            for (Map.Entry<Long, Pending> entry : unanswered.entrySet()) {
+                call.onNext(stamped(entry.getValue().request(), entry.getKey()));
+            }
+            if (closed) {
+                call.onCompleted();
+            }
+        }
+
+        private void received(GeneratePDFReply reply) {
+            consecutiveFailures.set(0);
+            Pending pending;
+            if (reply.getRequestId() != 0) {
+                pending = unanswered.remove(reply.getRequestId());
+            } else {
+                // The server doesn't echo ids, so it answers in request order
+                Map.Entry<Long, Pending> oldest = unanswered.pollFirstEntry();
+                pending = oldest != null ? oldest.getValue() : null;
+            }
+            if (pending == null) {
+                replyMarshaller.release(reply);
+                logger.warn("Stream {} got a reply matching no unanswered request (id {})", index, reply.getRequestId());
+                return;
+            }
+            metrics.recordRoundTrip(System.nanoTime() - pending.sentNanos());
+            if (pending.reply().isDone()) {
+                // The caller gave up on it
+                replyMarshaller.release(reply);
+            } else {
+                pending.reply().complete(replyMarshaller.onHeap(reply));
+            }
+        }
+
+        /**
+         * Handles the end of {@code ended}, a call on this lane. A server that completes the stream
+         * while requests are unanswered counts as a transient failure.
+         */
+        private void ended(ClientCallStreamObserver<GeneratePDFRequest> ended, Throwable t) {
+            List<Pending> failed = new ArrayList<>();
+            Throwable cause = t != null ? t : Status.UNAVAILABLE.withDescription("Stream completed early").asRuntimeException();
+            synchronized (this) {
+                if (call != ended) {
+                    return;
+                }
+                call = null;
+                if (unanswered.isEmpty()) {
+                    return; // The next submit opens a fresh call
+                }
+                int failures = consecutiveFailures.incrementAndGet();
+                if (!closed && (t == null || TransientFailures.isTransient(t))
+                        && failures <= properties.streamReconnectAttempts()) {
+                    long delayMs = reconnectBackoffMs(failures);
+                    logger.warn("Stream {} ended ({}); reconnecting in {} ms with {} unanswered requests",
+                            index, Status.fromThrowable(cause), delayMs, unanswered.size());
+                    reconnectScheduled = true;
+                    CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS).execute(this::reconnect);
+                    return;
+                }
+                consecutiveFailures.set(0);
+                Map.Entry<Long, Pending> entry;
+                while ((entry = unanswered.pollFirstEntry()) != null) {
+                    failed.add(entry.getValue());
+                }
+            }
+            // Completed outside the lock: callers' continuations may submit again
+            logger.error("Stream {} failed with {} unanswered requests", index, failed.size(), cause);
+            for (Pending pending : failed) {
+                pending.reply().completeExceptionally(cause);
+            }
+        }
+
+        private synchronized void reconnect() {
+            reconnectScheduled = false;
+            if (call == null && !unanswered.isEmpty()) {
+                open();
+                logger.info("Stream {} reconnected, resent {} unanswered requests", index, unanswered.size());
+            }
+        }
+
+        /**
+         * Exponential backoff with +/-20% jitter, so streams that failed together don't reconnect in lockstep.
+         */
+        private long reconnectBackoffMs(int failures) {
+            long base = properties.streamReconnectBackoffMs() << Math.min(failures - 1, 16);
+            double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+            return (long) (Math.min(base, MAX_RECONNECT_BACKOFF_MS) * jitter);
+        }
+    }
+
+    private static GeneratePDFRequest stamped(GeneratePDFRequest request, long requestId) {
+        return request.toBuilder().setRequestId(requestId).build();
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.grpcclient.service;
+
+import com.example.grpcclient.config.GrpcClientProperties;
+import com.example.grpcclient.util.AdjustableLimit;
+import com.example.grpcclient.util.ByteBudgetQueue;
+import com.example.grpcclient.util.ResizableBlockingQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Tunes writer parallelism, the request queue's capacity and the response byte budget while a run
+ * is going, by hill climbing on completed rows per second.
+ *
+ * Steps alternate: one measures throughput with the current settings, the next tries one change and
+ * measures again. A change is kept if throughput rose by more than the noise tolerance, or if it gave
+ * back a resource without losing throughput; otherwise it is undone and not tried again until some
+ * other change is kept. Queue occupancy decides what is tried first: a full response queue means the
+ * writers are behind, an idle one that there are writers to spare. Once every change has been
+ * rejected the values are logged as settled, and probing restarts after a while in case the server
+ * or disk has changed pace.
+ */
+class PipelineAutotuner {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineAutotuner.class);
+
+    private static final int SAMPLES_PER_STEP = 10;
+    // Throughput changes within this fraction are noise
+    private static final double TOLERANCE = 0.03;
+    private static final double QUEUE_STEP = 1.5;
+    private static final double BUSY = 0.8;
+    private static final double IDLE = 0.2;
+    private static final int SETTLED_STEPS_BEFORE_REPROBE = 30;
+
+    private enum Knob { WRITERS, REQUEST_QUEUE, RESPONSE_BUDGET }
+
+    private record Move(Knob knob, long from, long to) {
+        boolean grows() { return to > from; }
+    }
+
+    private final ResizableBlockingQueue<?> requestQueue;
+    private final ByteBudgetQueue<?> responseQueue;
+    // Null when nothing is written to disk, which leaves only the request queue to tune
+    private final AdjustableLimit writers;
+    private final LongSupplier completed;
+    private final Runnable budgetGrown;
+    private final long stepMillis;
+    private final long[] min = new long[Knob.values().length];
+    private final long[] max = new long[Knob.values().length];
+
+    // Only touched on the tuner's thread
+    private ScheduledExecutorService scheduler;
+    private int samples;
+    private double requestFill;
+    private double responseFill;
+    private long lastCompleted;
+    private long lastStepNanos;
+    private double baseline;
+    private Move pending;
+    private final Set<String> rejected = new HashSet<>();
+    private boolean settled;
+    private int settledSteps;
+    private int changesKept;
+
+    PipelineAutotuner(GrpcClientProperties properties, ResizableBlockingQueue<?> requestQueue,
+                      ByteBudgetQueue<?> responseQueue, AdjustableLimit writers,
+                      LongSupplier completed, Runnable budgetGrown) {
+        this.requestQueue = requestQueue;
+        this.responseQueue = responseQueue;
+        this.writers = writers;
+        this.completed = completed;
+        this.budgetGrown = budgetGrown;
+        this.stepMillis = properties.autotuneIntervalMs();
+        bounds(Knob.WRITERS, 1, properties.autotuneMaxWriters());
+        bounds(Knob.REQUEST_QUEUE, Math.max(16, properties.channelCapacity() / 16),
+                Math.min(Integer.MAX_VALUE, properties.channelCapacity() * 16L));
+        // The configured budget is a memory ceiling, so the tuner only ever lowers it
+        bounds(Knob.RESPONSE_BUDGET, Math.max(1024 * 1024, properties.responseBufferBytes() / 16),
+                properties.responseBufferBytes());
+    }
+
+    private void bounds(Knob knob, long low, long high) {
+        min[knob.ordinal()] = low;
+        max[knob.ordinal()] = Math.max(low, high);
+    }
+
+    void start() {
+        lastCompleted = completed.getAsLong();
+        lastStepNanos = System.nanoTime();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-autotuner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sampleMillis = Math.max(1, stepMillis / SAMPLES_PER_STEP);
+        scheduler.scheduleAtFixedRate(this::sample, sampleMillis, sampleMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    String summary() {
+        return String.format("Autotuner: writers %d, channel-capacity %,d, response-buffer-bytes %,d (%d changes kept)",
+                value(Knob.WRITERS), value(Knob.REQUEST_QUEUE), value(Knob.RESPONSE_BUDGET), changesKept);
+    }
+
+    private void sample() {
+        try {
+            requestFill += (double) requestQueue.size() / requestQueue.capacity();
+            responseFill += (double) responseQueue.usedBytes() / responseQueue.maxBytes();
+            if (++samples >= SAMPLES_PER_STEP) {
+                step(requestFill / samples, responseFill / samples);
+                samples = 0;
+                requestFill = 0;
+                responseFill = 0;
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule
+            logger.warn("Autotuner step failed", e);
+        }
+    }
+
+    private void step(double requestFill, double responseFill) {
+        long now = System.nanoTime();
+        long done = completed.getAsLong();
+        double throughput = (done - lastCompleted) * 1e9 / Math.max(1, now - lastStepNanos);
+        lastCompleted = done;
+        lastStepNanos = now;
+
+        if (throughput == 0) {
+            // Nothing moved: still starting or draining, which says nothing about the settings
+            if (pending != null) {
+                apply(pending.knob(), pending.from());
+                pending = null;
+            }
+            return;
+        }
+        if (pending != null) {
+            judge(pending, throughput);
+            pending = null;
+            return;
+        }
+        if (settled && ++settledSteps >= SETTLED_STEPS_BEFORE_REPROBE) {
+            rejected.clear();
+            settled = false;
+        }
+
+        baseline = throughput;
+        Move move = nextMove(requestFill, responseFill);
+        if (move == null) {
+            if (!settled) {
+                settled = true;
+                settledSteps = 0;
+                logger.info("Autotuner settled at {} rows/s: writers={}, channel-capacity={}, response-buffer-bytes={}",
+                        Math.round(throughput), value(Knob.WRITERS), value(Knob.REQUEST_QUEUE),
+                        value(Knob.RESPONSE_BUDGET));
+            }
+            return;
+        }
+        apply(move.knob(), move.to());
+        pending = move;
+    }
+
+    private void judge(Move move, double throughput) {
+        boolean faster = throughput > baseline * (1 + TOLERANCE);
+        boolean cheaperAndAsFast = !move.grows() && throughput >= baseline * (1 - TOLERANCE);
+        if (faster || cheaperAndAsFast) {
+            changesKept++;
+            rejected.clear();
+            settled = false;
+            logger.debug("Autotuner kept {} {} -> {} ({} -> {} rows/s)", move.knob(), move.from(), move.to(),
+                    Math.round(baseline), Math.round(throughput));
+        } else {
+            apply(move.knob(), move.from());
+            rejected.add(key(move.knob(), move.grows()));
+        }
+    }
+
+    /**
+     * The first untried move, the ones occupancy points at ahead of the rest.
+     */
+    private Move nextMove(double requestFill, double responseFill) {
+        List<Move> candidates = new ArrayList<>();
+        if (writers != null) {
+            if (responseFill >= BUSY) {
+                candidates.add(move(Knob.WRITERS, true));
+            } else if (responseFill <= IDLE) {
+                candidates.add(move(Knob.WRITERS, false));
+                candidates.add(move(Knob.RESPONSE_BUDGET, false));
+            }
+        }
+        if (requestFill >= BUSY) {
+            // The senders are the bottleneck; a shorter queue holds fewer rows for the same rate
+            candidates.add(move(Knob.REQUEST_QUEUE, false));
+        } else if (requestFill <= IDLE) {
+            // Room to absorb bursts from the loader
+            candidates.add(move(Knob.REQUEST_QUEUE, true));
+        }
+        for (Knob knob : Knob.values()) {
+            if (knob != Knob.REQUEST_QUEUE && writers == null) {
+                continue;
+            }
+            candidates.add(move(knob, true));
+            candidates.add(move(knob, false));
+        }
+        for (Move move : candidates) {
+            if (move != null && !rejected.contains(key(move.knob(), move.grows()))) {
+                return move;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One step of {@code knob} in the given direction, or null at its bound.
+     */
+    private Move move(Knob knob, boolean grow) {
+        long from = value(knob);
+        long to;
+        if (knob == Knob.WRITERS) {
+            long step = Math.max(1, from / 4);
+            to = grow ? from + step : from - step;
+        } else {
+            to = grow ? Math.round(from * QUEUE_STEP) : Math.round(from / QUEUE_STEP);
+        }
+        to = Math.max(min[knob.ordinal()], Math.min(max[knob.ordinal()], to));
+        return to == from ? null : new Move(knob, from, to);
+    }
+
+    private long value(Knob knob) {
+        return switch (knob) {
+            case WRITERS -> writers != null ? writers.limit() : 0;
+            case REQUEST_QUEUE -> requestQueue.capacity();
+            case RESPONSE_BUDGET -> responseQueue.maxBytes();
+        };
+    }
+
+    private void apply(Knob knob, long value) {
+        switch (knob) {
+            case WRITERS -> writers.setLimit((int) value);
+            case REQUEST_QUEUE -> requestQueue.setCapacity((int) value);
+            case RESPONSE_BUDGET -> {
+                boolean grew = value > responseQueue.maxBytes();
+                responseQueue.setMaxBytes(value);
+                if (grew) {
+                    // Shards parked on a full budget only wake when a writer frees bytes
+                    budgetGrown.run();
+                }
+            }
+        }
+    }
+
+    private static String key(Knob knob, boolean grow) {
+        return knob + (grow ? "+" : "-");
+    }
+}
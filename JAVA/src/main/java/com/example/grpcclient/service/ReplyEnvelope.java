@@ -0,0 +1,20 @@
+package com.example.grpcclient.service;
+
+import com.example.grpcclient.proto.GeneratePDFReply;
+
+/**
+ * A reply paired with the input row that produced it, as handed from the streams to the writers.
+ */
+record ReplyEnvelope(InputRow row, GeneratePDFReply reply) {
+
+    /**
+     * Stable key of the originating row, in the CSV's {@code LastName,FirstName} form.
+     */
+    String key() {
+        return row.request().getLastName() + "," + row.request().getFirstName();
+    }
+
+    int payloadBytes() {
+        return reply.getPdf().size();
+    }
+}
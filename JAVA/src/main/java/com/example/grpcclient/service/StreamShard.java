@@ -0,0 +1,192 @@
+package com.example.grpcclient.service;
+
+import com.example.grpcclient.proto.GeneratePDFReply;
+import com.example.grpcclient.proto.GeneratePDFRequest;
+import com.example.grpcclient.proto.MakePDFGrpc;
+import io.grpc.stub.ClientCallStreamObserver;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One StreamPDFs call on one channel of the pool, with its own send/receive counters.
+ *
+ * Every request is stamped with a request id and kept until its reply arrives, so a failed call
+ * can be replaced by a new one that is sent only the unanswered requests.
+ */
+class StreamShard {
+
+    /**
+     * An unanswered row and when it was (last) sent.
+     */
+    record Sent(InputRow row, long sentNanos) {
+    }
+
+    private final int index;
+    private final MakePDFGrpc.MakePDFStub stub;
+    private final AtomicLong sent = new AtomicLong(0);
+    private final AtomicLong received = new AtomicLong(0);
+    private final AtomicLong reconnects = new AtomicLong(0);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger(0);
+    // Unanswered rows by request id; ids grow in send order, so the first entry is the oldest
+    private final ConcurrentSkipListMap<Long, Sent> inFlight = new ConcurrentSkipListMap<>();
+    private volatile Instant startTime;
+    private volatile Instant endTime;
+    private volatile ClientCallStreamObserver<GeneratePDFRequest> requestStream;
+    // Serialises sends with replacing the call, so no row is sent to a call after it was replaced
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private boolean inputDone;
+    private final ReentrantLock readyLock = new ReentrantLock();
+    private final Condition readyCondition = readyLock.newCondition();
+
+    StreamShard(int index, MakePDFGrpc.MakePDFStub stub) {
+        this.index = index;
+        this.stub = stub;
+    }
+
+    int index() { return index; }
+    MakePDFGrpc.MakePDFStub stub() { return stub; }
+    long sent() { return sent.get(); }
+    long received() { return received.get(); }
+    int unanswered() { return inFlight.size(); }
+    ClientCallStreamObserver<GeneratePDFRequest> requestStream() { return requestStream; }
+
+    void markStarted() { startTime = Instant.now(); }
+    /**
+     * Marks the shard finished for good, after its last call ended without being replaced.
+     */
+    void markCompleted() {
+        endTime = Instant.now();
+        signalReady(); // release a sender waiting on a call that will never become ready again
+    }
+
+    /**
+     * Sends {@code row} on the current call, stamped with {@code requestId}.
+     */
+    void send(InputRow row, long requestId) {
+        sendLock.lock();
+        try {
+            inFlight.put(requestId, new Sent(row, System.nanoTime()));
+            sent.incrementAndGet();
+            requestStream.onNext(stamped(row, requestId));
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    /**
+     * Tells the server no more requests follow, now and on any call that replaces this one.
+     */
+    void halfClose() {
+        sendLock.lock();
+        try {
+            inputDone = true;
+            requestStream.onCompleted();
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    /**
+     * Counts a reply and returns the send it answers: the one with the echoed request id, or the
+     * oldest unanswered one if the server doesn't echo ids (it then answers in request order).
+     * Returns null for a reply that matches no unanswered row.
+     */
+    Sent recordReceived(GeneratePDFReply reply) {
+        received.incrementAndGet();
+        consecutiveFailures.set(0);
+        if (reply.getRequestId() != 0) {
+            return inFlight.remove(reply.getRequestId());
+        }
+        Map.Entry<Long, Sent> oldest = inFlight.pollFirstEntry();
+        return oldest != null ? oldest.getValue() : null;
+    }
+
+    /**
+     * Counts a failure of the current call and returns how many calls have failed in a row.
+     */
+    int recordFailure() {
+        return consecutiveFailures.incrementAndGet();
+    }
+
+    /**
+     * Starts a replacement for the failed call through {@code openCall}, which must attach the new
+     * call, and resends every unanswered row on it in their original order. Returns the number of
+     * rows resent.
+     */
+    int reopen(Runnable openCall) {
+        sendLock.lock();
+        try {
+            reconnects.incrementAndGet();
+            openCall.run();
+            for (Map.Entry<Long, Sent> unanswered : inFlight.entrySet()) {
+                InputRow row = unanswered.getValue().row();
+                inFlight.put(unanswered.getKey(), new Sent(row, System.nanoTime()));
+                requestStream.onNext(stamped(row, unanswered.getKey()));
+            }
+            if (inputDone) {
+                requestStream.onCompleted();
+            }
+            return inFlight.size();
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    private static GeneratePDFRequest stamped(InputRow row, long requestId) {
+        return row.request().toBuilder().setRequestId(requestId).build();
+    }
+
+    void attach(ClientCallStreamObserver<GeneratePDFRequest> requestStream) {
+        this.requestStream = requestStream;
+        requestStream.setOnReadyHandler(this::signalReady);
+    }
+
+    /**
+     * Blocks until the transport can take another message without buffering it internally.
+     * Returns false once the shard has finished for good.
+     */
+    boolean awaitReady() throws InterruptedException {
+        readyLock.lock();
+        try {
+            while (!requestStream.isReady()) {
+                if (endTime != null) {
+                    return false;
+                }
+                readyCondition.await();
+            }
+            return true;
+        } finally {
+            readyLock.unlock();
+        }
+    }
+
+    private void signalReady() {
+        readyLock.lock();
+        try {
+            readyCondition.signalAll();
+        } finally {
+            readyLock.unlock();
+        }
+    }
+
+    double repliesPerSecond() {
+        if (startTime == null) {
+            return 0;
+        }
+        Instant end = endTime != null ? endTime : Instant.now();
+        long millis = Math.max(1, Duration.between(startTime, end).toMillis());
+        return received.get() * 1000.0 / millis;
+    }
+
+    String summary() {
+        return String.format("Shard %d: sent %,d, received %,d, reconnects %d, %.1f replies/s",
+                index, sent(), received(), reconnects.get(), repliesPerSecond());
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.grpcclient.service;
+
+import io.grpc.Status;
+
+/**
+ * Classifies RPC failures worth retrying: the server was unreachable, overloaded or too slow,
+ * rather than rejecting the request itself.
+ */
+final class TransientFailures {
+
+    private TransientFailures() {
+    }
+
+    static boolean isTransient(Throwable t) {
+        Status.Code code = Status.fromThrowable(t).getCode();
+        return code == Status.Code.UNAVAILABLE
+                || code == Status.Code.RESOURCE_EXHAUSTED
+                || code == Status.Code.DEADLINE_EXCEEDED
+                || code == Status.Code.ABORTED;
+    }
+}
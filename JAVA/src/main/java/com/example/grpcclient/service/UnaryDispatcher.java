@@ -0,0 +1,166 @@
+package com.example.grpcclient.service;
+
+import com.example.grpcclient.proto.GeneratePDFReply;
+import com.example.grpcclient.metrics.PipelineMetrics;
+import com.example.grpcclient.proto.MakePDFGrpc;
+import com.example.grpcclient.util.AdaptiveConcurrencyLimiter;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Fans rows out as individual GeneratePDF calls on the future stub, keeping as many in flight as
+ * the {@link AdaptiveConcurrencyLimiter} allows. Calls rejected for overload are retried.
+ */
+class UnaryDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnaryDispatcher.class);
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final MakePDFGrpc.MakePDFFutureStub stub;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final ExecutorService retryExecutor;
+    private final PipelineMetrics metrics;
+    private final BiConsumer<InputRow, GeneratePDFReply> onReply;
+
+    private final AtomicInteger outstanding = new AtomicInteger(0);
+    private final AtomicLong failures = new AtomicLong(0);
+    private final AtomicLong retries = new AtomicLong(0);
+    private final Set<ListenableFuture<GeneratePDFReply>> inFlight = ConcurrentHashMap.newKeySet();
+    private final CompletableFuture<Void> drained = new CompletableFuture<>();
+    private volatile boolean inputDone;
+    private volatile boolean cancelled;
+
+    UnaryDispatcher(MakePDFGrpc.MakePDFFutureStub stub,
+                    AdaptiveConcurrencyLimiter limiter,
+                    ExecutorService retryExecutor,
+                    PipelineMetrics metrics,
+                    BiConsumer<InputRow, GeneratePDFReply> onReply) {
+        this.stub = stub;
+        this.limiter = limiter;
+        this.retryExecutor = retryExecutor;
+        this.metrics = metrics;
+        this.onReply = onReply;
+    }
+
+    /**
+     * Starts a call for {@code row}, blocking while the concurrency limit is reached.
+     */
+    void dispatch(InputRow row) throws InterruptedException {
+        outstanding.incrementAndGet();
+        try {
+            send(row, 1);
+        } catch (InterruptedException e) {
+            finishOne();
+            throw e;
+        }
+    }
+
+    /**
+     * Marks the input as exhausted and waits for every dispatched row to succeed or finally fail.
+     */
+    void awaitCompletion() throws InterruptedException {
+        inputDone = true;
+        if (outstanding.get() == 0) {
+            drained.complete(null);
+        }
+        try {
+            drained.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Cancels the calls in flight; rows not yet sent, including pending retries, are finished unsent.
+     */
+    void cancel() {
+        cancelled = true;
+        inFlight.forEach(call -> call.cancel(true));
+    }
+
+    long failures() { return failures.get(); }
+    long retries() { return retries.get(); }
+
+    private void send(InputRow row, int attempt) throws InterruptedException {
+        if (cancelled) {
+            finishOne();
+            return;
+        }
+        limiter.acquire();
+        if (cancelled) {
+            // Cancelled while waiting for a permit
+            limiter.onDropped();
+            finishOne();
+            return;
+        }
+        long startNanos = System.nanoTime();
+        ListenableFuture<GeneratePDFReply> call = stub.generatePDF(row.request());
+        metrics.recordSend(System.nanoTime() - startNanos);
+        inFlight.add(call);
+        if (cancelled) {
+            // cancel() may have gone over inFlight before this call was added
+            call.cancel(true);
+        }
+
+        Futures.addCallback(call, new FutureCallback<>() {
+            @Override
+            public void onSuccess(GeneratePDFReply reply) {
+                inFlight.remove(call);
+                long rttNanos = System.nanoTime() - startNanos;
+                limiter.onSuccess(rttNanos);
+                metrics.recordRoundTrip(rttNanos);
+                try {
+                    onReply.accept(row, reply);
+                } finally {
+                    finishOne();
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                inFlight.remove(call);
+                limiter.onDropped();
+                if (cancelled || call.isCancelled()) {
+                    finishOne();
+                    return;
+                }
+                if (attempt < MAX_ATTEMPTS && TransientFailures.isTransient(t)) {
+                    retries.incrementAndGet();
+                    // acquire() may block, so never retry on the callback thread
+                    retryExecutor.execute(() -> {
+                        try {
+                            send(row, attempt + 1);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            finishOne();
+                        }
+                    });
+                    return;
+                }
+                logger.error("GeneratePDF failed after {} attempt(s): {}", attempt, Status.fromThrowable(t));
+                failures.incrementAndGet();
+                finishOne();
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void finishOne() {
+        if (outstanding.decrementAndGet() == 0 && inputDone) {
+            drained.complete(null);
+        }
+    }
+}
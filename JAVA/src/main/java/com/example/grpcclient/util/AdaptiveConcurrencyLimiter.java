@@ -0,0 +1,152 @@
+package com.example.grpcclient.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that searches for the server's throughput knee using latency and errors.
+ *
+ * Additive increase / multiplicative decrease: while the smoothed latency stays within
+ * {@code tolerance} of the minimum observed latency, every successful call grows the limit by
+ * {@code 1/limit} (about +1 per round trip), provided the current limit is actually in use. A failed
+ * call, or a smoothed latency above {@code tolerance * minRtt} (plus a 1 ms noise floor), shrinks the limit by {@code backoff},
+ * at most once per round trip so a single burst of slow replies doesn't collapse it. The minimum
+ * latency is re-learned every {@value #RTT_WINDOW} samples so the baseline follows the server when
+ * it gets faster or slower.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int RTT_WINDOW = 1000;
+    private static final double DEFAULT_TOLERANCE = 2.0;
+    private static final double DEFAULT_BACKOFF = 0.9;
+    private static final double RTT_SMOOTHING = 0.1;
+    // Latency growth below this is scheduling jitter, not queueing at the server
+    private static final long NOISE_FLOOR_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoff;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private long minRttNanos = Long.MAX_VALUE;
+    private double smoothedRttNanos;
+    private long windowMinRttNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private long lastDecreaseNanos;
+    private long peakLimit;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, DEFAULT_TOLERANCE, DEFAULT_BACKOFF);
+    }
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double backoff) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.tolerance = tolerance;
+        this.backoff = backoff;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.peakLimit = (long) limit;
+    }
+
+    /**
+     * Blocks until a call may be started under the current limit.
+     */
+    public void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                permitAvailable.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess(long rttNanos) {
+        lock.lock();
+        try {
+            // Utilisation is judged with this call still counted, otherwise a limit of 1 could never grow
+            boolean limitInUse = inFlight * 2 >= (int) limit;
+            inFlight--;
+            sampleRtt(rttNanos);
+            if (smoothedRttNanos > minRttNanos * tolerance + NOISE_FLOOR_NANOS) {
+                decrease();
+            } else if (limitInUse) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+                peakLimit = Math.max(peakLimit, (long) limit);
+            }
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onDropped() {
+        lock.lock();
+        try {
+            inFlight--;
+            decrease();
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease() {
+        long now = System.nanoTime();
+        if (now - lastDecreaseNanos < smoothedRttNanos) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        limit = Math.max(minLimit, limit * backoff);
+    }
+
+    private void sampleRtt(long rttNanos) {
+        smoothedRttNanos = smoothedRttNanos == 0
+                ? rttNanos
+                : smoothedRttNanos + RTT_SMOOTHING * (rttNanos - smoothedRttNanos);
+        minRttNanos = Math.min(minRttNanos, rttNanos);
+        windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+        if (++windowSamples >= RTT_WINDOW) {
+            minRttNanos = windowMinRttNanos;
+            windowMinRttNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String summary() {
+        lock.lock();
+        try {
+            double nanosPerMilli = TimeUnit.MILLISECONDS.toNanos(1);
+            double minRttMillis = minRttNanos == Long.MAX_VALUE ? 0 : minRttNanos / nanosPerMilli;
+            return String.format("Concurrency limit: %d (peak %d), latency min %.2f ms / smoothed %.2f ms",
+                    (int) limit, peakLimit, minRttMillis, smoothedRttNanos / nanosPerMilli);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.grpcclient.util;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Queue bounded by the total payload bytes it holds rather than by item count.
+ *
+ * {@link #add(Object)} never blocks: callers are expected to check {@link #hasCapacity()} before
+ * asking for more input, so a single item may push the queue past its budget. {@link #put(Object)}
+ * instead waits for budget first. Bytes stay accounted until the consumer calls
+ * {@link #release(Object)}, i.e. until it is actually done with the payload. The budget can be
+ * changed while the queue is in use.
+ */
+public class ByteBudgetQueue<T> {
+
+    private final LinkedBlockingQueue<T> items = new LinkedBlockingQueue<>();
+    private final ToLongFunction<T> weigher;
+    private volatile long maxBytes;
+    private final AtomicLong usedBytes = new AtomicLong(0);
+    private final ReentrantLock capacityLock = new ReentrantLock();
+    private final Condition capacityAvailable = capacityLock.newCondition();
+
+    public ByteBudgetQueue(long maxBytes, ToLongFunction<T> weigher) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Byte budget must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    public void add(T item) {
+        usedBytes.addAndGet(weigher.applyAsLong(item));
+        items.add(item);
+    }
+
+    public void put(T item) throws InterruptedException {
+        awaitCapacity();
+        add(item);
+    }
+
+    /**
+     * Blocks until the queue is below its byte budget.
+     */
+    public void awaitCapacity() throws InterruptedException {
+        capacityLock.lockInterruptibly();
+        try {
+            while (!hasCapacity()) {
+                capacityAvailable.await();
+            }
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+
+    public T take() throws InterruptedException {
+        return items.take();
+    }
+
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return items.poll(timeout, unit);
+    }
+
+    public void release(T item) {
+        usedBytes.addAndGet(-weigher.applyAsLong(item));
+        if (hasCapacity()) {
+            capacityLock.lock();
+            try {
+                capacityAvailable.signalAll();
+            } finally {
+                capacityLock.unlock();
+            }
+        }
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Byte budget must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        if (hasCapacity()) {
+            capacityLock.lock();
+            try {
+                capacityAvailable.signalAll();
+            } finally {
+                capacityLock.unlock();
+            }
+        }
+    }
+
+    public boolean hasCapacity() { return usedBytes.get() < maxBytes; }
+    public long usedBytes() { return usedBytes.get(); }
+    public long maxBytes() { return maxBytes; }
+    public int size() { return items.size(); }
+    public boolean isEmpty() { return items.isEmpty(); }
+}
@@ -0,0 +1,55 @@
+package com.example.grpcclient.util;
+
+import com.google.protobuf.ByteString;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes protobuf {@link ByteString} payloads to disk without materialising a {@code byte[]} copy.
+ */
+public final class ByteStringFiles {
+
+    private ByteStringFiles() {
+    }
+
+    /**
+     * Writes {@code data} to a new file using a gathering write over the ByteString's own
+     * read-only segments.
+     */
+    public static void write(Path filePath, ByteString data) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            write(channel, data);
+        }
+    }
+
+    /**
+     * Appends {@code data} at the channel's current position and returns the number of bytes written.
+     */
+    public static long write(FileChannel channel, ByteString data) throws IOException {
+        List<ByteBuffer> segments = data.asReadOnlyByteBufferList();
+        ByteBuffer[] buffers = segments.toArray(new ByteBuffer[0]);
+        long remaining = data.size();
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+        return data.size();
+    }
+
+    /**
+     * Writes {@code data} at an absolute file position without moving the channel's position,
+     * so several threads can fill disjoint ranges of the same file concurrently.
+     */
+    public static void write(FileChannel channel, ByteString data, long position) throws IOException {
+        for (ByteBuffer segment : data.asReadOnlyByteBufferList()) {
+            while (segment.hasRemaining()) {
+                position += channel.write(segment, position);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.grpcclient.util;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct {@link ByteBuffer}s in power-of-two size classes, so large payloads can be held off
+ * the heap without paying for a fresh native allocation every time.
+ *
+ * At most {@code maxPooledBytes} of idle buffers are kept; a buffer released beyond that is dropped
+ * and its memory returned when it is garbage collected. Requests above the largest size class get an
+ * exact-size buffer that is never pooled.
+ */
+public class DirectBufferPool {
+
+    private static final int MIN_CLASS_SHIFT = 16; // 64 KB
+    private static final int MAX_CLASS_SHIFT = 26; // 64 MB
+
+    private final long maxPooledBytes;
+    private final AtomicLong pooledBytes = new AtomicLong(0);
+    private final AtomicLong allocatedBytes = new AtomicLong(0);
+    @SuppressWarnings("unchecked")
+    private final Queue<ByteBuffer>[] classes = new Queue[MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1];
+
+    public DirectBufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * Returns a cleared direct buffer whose limit is exactly {@code size}.
+     */
+    public ByteBuffer acquire(int size) {
+        int sizeClass = sizeClass(size);
+        ByteBuffer buffer = sizeClass < 0 ? null : classes[sizeClass].poll();
+        if (buffer != null) {
+            pooledBytes.addAndGet(-buffer.capacity());
+        } else {
+            int capacity = sizeClass < 0 ? size : 1 << (sizeClass + MIN_CLASS_SHIFT);
+            buffer = ByteBuffer.allocateDirect(capacity);
+            allocatedBytes.addAndGet(capacity);
+        }
+        buffer.clear().limit(size);
+        return buffer;
+    }
+
+    /**
+     * Hands a buffer from {@link #acquire(int)} back. The caller must not touch it afterwards.
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        int sizeClass = Integer.numberOfTrailingZeros(capacity) - MIN_CLASS_SHIFT;
+        boolean pooled = Integer.bitCount(capacity) == 1 && sizeClass >= 0 && sizeClass < classes.length;
+        if (pooled && pooledBytes.addAndGet(capacity) <= maxPooledBytes) {
+            classes[sizeClass].add(buffer);
+        } else if (pooled) {
+            pooledBytes.addAndGet(-capacity);
+        }
+    }
+
+    /** Bytes of idle buffers currently held by the pool. */
+    public long pooledBytes() { return pooledBytes.get(); }
+
+    /** Total bytes of direct memory allocated by the pool so far, pooled or not. */
+    public long allocatedBytes() { return allocatedBytes.get(); }
+
+    private static int sizeClass(int size) {
+        int shift = Math.max(MIN_CLASS_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(1, size) - 1));
+        return shift > MAX_CLASS_SHIFT ? -1 : shift - MIN_CLASS_SHIFT;
+    }
+}
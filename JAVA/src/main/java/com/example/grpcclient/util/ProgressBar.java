@@ -1,7 +1,21 @@
 package com.example.grpcclient.util;
 
 import java.text.DecimalFormat;
-
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Progress of a run. Pipeline threads only bump a {@link LongAdder}; a ticker thread samples it at
+ * a fixed rate and renders the bar with rate and ETA, so no formatting or console I/O ever happens
+ * on the hot path.
+ *
+ * On a terminal the bar is redrawn in place. Otherwise (output redirected to a file or a log
+ * collector) a {@code key=value} line is printed per tick instead.
+ */
 public class ProgressBar {
     
     private static final char FILL_CHAR = '█';
@@ -16,83 +30,190 @@ public class ProgressBar {
 
     // Animation characters for spinner
     private static final char[] HALF_CIRCLE_ANIMATION = {'◐', '◓', '◑', '◒'};
-    
+    // Weight of the newest tick in the smoothed rate
+    private static final double RATE_SMOOTHING = 0.3;
+
+    /** How progress is written. */
+    public enum Format {
+        /** {@link #BAR} when attached to a terminal, {@link #LINES} otherwise. */
+        AUTO,
+        /** Box-drawn bar redrawn in place with ANSI escapes. */
+        BAR,
+        /** One machine-readable {@code key=value} line per tick. */
+        LINES
+    }
+
     private final boolean shouldUseEnhancedProgressBar;
-    private volatile long lastProgressUpdate = 0;
-    private volatile int spinnerIndex = 0;
-    private final Object progressLock = new Object();
+    private final boolean terminal;
+    private final long intervalMillis;
+    private final LongAdder completed = new LongAdder();
     private final DecimalFormat numberFormat = new DecimalFormat("#,###");
 
+    // Touched only by the ticker thread, or by stop() once the ticker has finished
+    private ScheduledExecutorService ticker;
+    private LongSupplier total = () -> 0;
+    private long startNanos;
+    private long lastTickNanos;
+    private long lastTickCompleted;
+    private double smoothedRate;
+    private int spinnerIndex = 0;
+
     public ProgressBar(boolean shouldUseEnhancedProgressBar) {
+        this(shouldUseEnhancedProgressBar, Format.AUTO, 250);
+    }
+
+    public ProgressBar(boolean shouldUseEnhancedProgressBar, Format format, long intervalMillis) {
         this.shouldUseEnhancedProgressBar = shouldUseEnhancedProgressBar;
+        this.terminal = switch (format) {
+            case BAR -> true;
+            case LINES -> false;
+            case AUTO -> System.console() != null;
+        };
+        this.intervalMillis = Math.max(10, intervalMillis);
     }
 
-    public void updateProgress(long progress, long total) {
+    /**
+     * Records one finished item. Safe to call from any number of threads; never blocks.
+     */
+    public void increment() {
+        completed.increment();
+    }
+
+    public long completed() {
+        return completed.sum();
+    }
+
+    /**
+     * Starts rendering progress towards {@code total}, which may keep growing while input loads.
+     */
+    public synchronized void start(LongSupplier total) {
+        stopTicker();
+        this.total = total;
+        startNanos = System.nanoTime();
+        lastTickNanos = startNanos;
+        lastTickCompleted = completed.sum();
+        smoothedRate = 0;
         if (!shouldUseEnhancedProgressBar) {
             return;
         }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "progress-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> render(false), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the ticker and renders the final state.
+     */
+    public synchronized void stop() {
+        if (stopTicker()) {
+            render(true);
+        }
+    }
+
+    private boolean stopTicker() {
+        if (ticker == null) {
+            return false;
+        }
+        ticker.shutdownNow();
+        try {
+            ticker.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ticker = null;
+        return true;
+    }
+
+    private void render(boolean last) {
+        long now = System.nanoTime();
+        long progress = completed.sum();
+        long target = Math.max(total.getAsLong(), progress);
 
-        // Throttle updates - only update every 10 items unless it's the final update
-        if ((progress != total) && (progress - lastProgressUpdate) < 10) {
+        double tickSeconds = (now - lastTickNanos) / 1e9;
+        if (tickSeconds > 0) {
+            double tickRate = (progress - lastTickCompleted) / tickSeconds;
+            smoothedRate = smoothedRate == 0 ? tickRate : smoothedRate + RATE_SMOOTHING * (tickRate - smoothedRate);
+        }
+        lastTickNanos = now;
+        lastTickCompleted = progress;
+        double rate = last ? progress / Math.max(1e-9, (now - startNanos) / 1e9) : smoothedRate;
+        long etaSeconds = rate > 0 ? (long) Math.ceil((target - progress) / rate) : -1;
+
+        if (terminal) {
+            renderBar(progress, target, rate, etaSeconds, last);
+        } else {
+            System.out.printf(Locale.ROOT, "progress completed=%d total=%d percent=%.1f rate=%.1f eta_s=%d%n",
+                    progress, target, target == 0 ? 0.0 : 100.0 * progress / target, rate, etaSeconds);
+        }
+    }
+
+    private void renderBar(long progress, long total, double rate, long etaSeconds, boolean last) {
+        if (total == 0) {
             return;
         }
 
-        synchronized (progressLock) {
-            lastProgressUpdate = progress;
-            
-            if (total == 0) {
-                return;
-            }
+        int percent = (int) ((double) progress / total * 100);
+        String statusString = String.format("%d%% %s / %s  %s/s  ETA %s %s",
+                percent,
+                numberFormat.format(progress),
+                numberFormat.format(total),
+                numberFormat.format(Math.round(rate)),
+                formatEta(etaSeconds),
+                HALF_CIRCLE_ANIMATION[spinnerIndex]);
+
+        // Calculate console width (assume 120 if system property not available)
+        int consoleWidth = getConsoleWidth();
+        int barSize = Math.max(20, consoleWidth - statusString.length() - 10);
+        int progressSize = (int) ((double) progress / total * barSize);
+
+        // Update spinner
+        spinnerIndex = (spinnerIndex + 1) % HALF_CIRCLE_ANIMATION.length;
+
+        StringBuilder progressBar = new StringBuilder();
+
+        // Top border
+        progressBar.append(UPPER_LEFT_CHAR);
+        progressBar.append(String.valueOf(HORIZONTAL_CHAR).repeat(barSize));
+        progressBar.append(UPPER_RIGHT_CHAR);
+        progressBar.append(" ".repeat(Math.max(0, consoleWidth - barSize - 2)));
+        progressBar.append('\n');
+
+        // Progress line
+        progressBar.append(LEFT_CHAR);
+        progressBar.append(String.valueOf(FILL_CHAR).repeat(progressSize));
+        progressBar.append(String.valueOf(EMPTY_CHAR).repeat(barSize - progressSize));
+        progressBar.append(String.format("%s %s", RIGHT_CHAR, statusString));
+        progressBar.append(" ".repeat(Math.max(0, consoleWidth - barSize - statusString.length() - 3)));
+        progressBar.append('\n');
+
+        // Bottom border
+        progressBar.append(LOWER_LEFT_CHAR);
+        progressBar.append(String.valueOf(HORIZONTAL_CHAR).repeat(barSize));
+        progressBar.append(LOWER_RIGHT_CHAR);
+        progressBar.append(" ".repeat(Math.max(0, consoleWidth - barSize - 3)));
+
+        // Clear previous lines and print new progress bar
+        System.out.print("\r\033[2A"); // Move cursor up 2 lines
+        System.out.print("\033[J");    // Clear from cursor to end of screen
+        System.out.print(progressBar.toString());
+        System.out.flush();
+
+        // After the final frame, move cursor to next line
+        if (last) {
+            System.out.println();
+        }
+    }
 
-            int percent = (int) ((double) progress / total * 100);
-            String statusString = String.format("%d%% %s / %s %s", 
-                    percent, 
-                    numberFormat.format(progress), 
-                    numberFormat.format(total), 
-                    HALF_CIRCLE_ANIMATION[spinnerIndex]);
-
-            // Calculate console width (assume 120 if system property not available)
-            int consoleWidth = getConsoleWidth();
-            int barSize = Math.max(20, consoleWidth - statusString.length() - 10);
-            int progressSize = (int) ((double) progress / total * barSize);
-
-            // Update spinner
-            spinnerIndex = (spinnerIndex + 1) % HALF_CIRCLE_ANIMATION.length;
-
-            StringBuilder progressBar = new StringBuilder();
-
-            // Top border
-            progressBar.append(UPPER_LEFT_CHAR);
-            progressBar.append(String.valueOf(HORIZONTAL_CHAR).repeat(barSize));
-            progressBar.append(UPPER_RIGHT_CHAR);
-            progressBar.append(" ".repeat(Math.max(0, consoleWidth - barSize - 2)));
-            progressBar.append('\n');
-
-            // Progress line
-            progressBar.append(LEFT_CHAR);
-            progressBar.append(String.valueOf(FILL_CHAR).repeat(progressSize));
-            progressBar.append(String.valueOf(EMPTY_CHAR).repeat(barSize - progressSize));
-            progressBar.append(String.format("%s %s", RIGHT_CHAR, statusString));
-            progressBar.append(" ".repeat(Math.max(0, consoleWidth - barSize - statusString.length() - 3)));
-            progressBar.append('\n');
-
-            // Bottom border
-            progressBar.append(LOWER_LEFT_CHAR);
-            progressBar.append(String.valueOf(HORIZONTAL_CHAR).repeat(barSize));
-            progressBar.append(LOWER_RIGHT_CHAR);
-            progressBar.append(" ".repeat(Math.max(0, consoleWidth - barSize - 3)));
-
-            // Clear previous lines and print new progress bar
-            System.out.print("\r\033[2A"); // Move cursor up 2 lines
-            System.out.print("\033[J");    // Clear from cursor to end of screen
-            System.out.print(progressBar.toString());
-            System.out.flush();
-
-            // If this is the final update, move cursor to next line
-            if (progress == total) {
-                System.out.println();
-            }
+    private static String formatEta(long etaSeconds) {
+        if (etaSeconds < 0) {
+            return "--:--";
         }
+        return etaSeconds >= 3600
+                ? String.format("%d:%02d:%02d", etaSeconds / 3600, etaSeconds / 60 % 60, etaSeconds % 60)
+                : String.format("%02d:%02d", etaSeconds / 60, etaSeconds % 60);
     }
 
     private int getConsoleWidth() {
@@ -109,10 +230,9 @@ public class ProgressBar {
         return 120;
     }
 
-    public void reset() {
-        synchronized (progressLock) {
-            lastProgressUpdate = 0;
-            spinnerIndex = 0;
-        }
+    public synchronized void reset() {
+        stopTicker();
+        completed.reset();
+        spinnerIndex = 0;
     }
-}
\ No newline at end of file
+}
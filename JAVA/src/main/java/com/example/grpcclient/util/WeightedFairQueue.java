@@ -0,0 +1,156 @@
+package com.example.grpcclient.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queue shared by several flows that hands items out in weighted fair order, so each backlogged flow
+ * gets a share of the consumers proportional to its weight however much it has queued.
+ *
+ * This is self-clocked fair queueing: an item enqueued with cost {@code c} on a flow of weight
+ * {@code w} is tagged to finish {@code c / w} after the later of the flow's previous tag and the
+ * queue's virtual time, which is the tag of the item last taken. {@link #take()} returns the queued
+ * head with the smallest tag. A flow that goes idle does not bank credit for later. Flows are few, so
+ * the heads are simply scanned.
+ */
+public class WeightedFairQueue<T> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    // Guarded by lock
+    private final List<Flow> flows = new ArrayList<>();
+    private double virtualTime;
+    private int size;
+
+    private record Tagged<T>(T item, double finish) {
+    }
+
+    /**
+     * One producer's lane into the queue, holding at most {@code capacity} items.
+     */
+    public final class Flow {
+
+        private final double weight;
+        private final int capacity;
+        private final ArrayDeque<Tagged<T>> items = new ArrayDeque<>();
+        private final Condition notFull = lock.newCondition();
+        private double lastFinish;
+        private boolean removed;
+
+        private Flow(double weight, int capacity) {
+            this.weight = weight;
+            this.capacity = capacity;
+        }
+
+        /**
+         * Queues {@code item}, blocking while the flow is full. {@code cost} is what the item takes
+         * from its consumer, in any unit as long as all flows use the same one.
+         */
+        public void put(T item, long cost) throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (items.size() >= capacity && !removed) {
+                    notFull.await();
+                }
+                if (removed) {
+                    throw new IllegalStateException("Flow was removed from the queue");
+                }
+                double finish = Math.max(virtualTime, lastFinish) + Math.max(1, cost) / weight;
+                lastFinish = finish;
+                items.add(new Tagged<>(item, finish));
+                size++;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int size() {
+            lock.lock();
+            try {
+                return items.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public double weight() { return weight; }
+    }
+
+    /**
+     * Adds a flow of the given weight; a flow of weight 2 is served twice as often as one of weight 1.
+     */
+    public Flow addFlow(double weight, int capacity) {
+        if (weight <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Weight and capacity must be positive: " + weight + ", " + capacity);
+        }
+        lock.lock();
+        try {
+            Flow flow = new Flow(weight, capacity);
+            flows.add(flow);
+            return flow;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a flow and returns the items it still had queued. Producers blocked in
+     * {@link Flow#put} fail with {@link IllegalStateException}.
+     */
+    public List<T> removeFlow(Flow flow) {
+        lock.lock();
+        try {
+            flows.remove(flow);
+            flow.removed = true;
+            List<T> dropped = new ArrayList<>(flow.items.size());
+            for (Tagged<T> tagged : flow.items) {
+                dropped.add(tagged.item());
+            }
+            size -= flow.items.size();
+            flow.items.clear();
+            flow.notFull.signalAll();
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the item that is next in fair order, waiting until any flow has one.
+     */
+    public T take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            Flow next = null;
+            for (Flow flow : flows) {
+                Tagged<T> head = flow.items.peek();
+                if (head != null && (next == null || head.finish() < next.items.peek().finish())) {
+                    next = flow;
+                }
+            }
+            Tagged<T> taken = next.items.poll();
+            size--;
+            virtualTime = taken.finish();
+            next.notFull.signal();
+            return taken.item();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
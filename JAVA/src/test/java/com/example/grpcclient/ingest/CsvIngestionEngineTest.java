@@ -0,0 +1,126 @@
+package com.example.grpcclient.ingest;
+
+import com.example.grpcclient.proto.GeneratePDFRequest;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvIngestionEngineTest {
+
+    // The engine's smallest chunk, and the window it scans for a chunk's first line break
+    private static final int CHUNK_BYTES = 8192;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rowsCrossingChunkBoundariesMatchTheBaselineLoader() throws Exception {
+        var random = new Random(42);
+        var csv = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            switch (random.nextInt(10)) {
+                case 0 -> csv.append("\"O\"\"Brien").append(i).append("\",\"Say \"\"hi\"\"\"\n");
+                case 1 -> csv.append("Last").append(i).append(",First").append(i).append("\r\n");
+                case 2 -> csv.append("\n");
+                case 3 -> csv.append("  Spaced").append(i).append(" ,\tName").append(i).append("  \n");
+                case 4 -> csv.append("Missing").append(i).append(",\n");
+                case 5 -> csv.append("Lonely").append(i).append('\n');
+                case 6 -> csv.append("Last").append(i).append(",First").append(i).append(",extra\n");
+                case 7 -> csv.append("   \n");
+                default -> csv.append("Last").append(i).append(",First").append(i).append('\n');
+            }
+            if (i == 2500) {
+                // Longer than the boundary scan window, so finding its end takes several reads
+                csv.append("x".repeat(3 * CHUNK_BYTES)).append(",Long\n");
+            }
+        }
+        csv.append("Unterminated,Last");
+        Path input = Files.writeString(directory.resolve("names.csv"), csv);
+
+        Map<Long, String> rows = ingest(input, 4);
+
+        assertTrue(Files.size(input) > 10L * CHUNK_BYTES);
+        assertEquals(baseline(input), new ArrayList<>(rows.values()));
+    }
+
+    @Test
+    void quotedFieldsUnescapeDoubledQuotes() throws Exception {
+        Path input = Files.writeString(directory.resolve("names.csv"),
+                "\"O\"\"Brien\",\"Pat\"\n"
+                        + "\" Quoted \" , \"\"\"Twice\"\"\"\n"
+                        + "Plain,\"\"\n");
+
+        Map<Long, String> rows = ingest(input, 1);
+
+        assertEquals(List.of("O\"Brien|Pat", "Quoted|\"Twice\""), new ArrayList<>(rows.values()));
+    }
+
+    @Test
+    void rowsAreKeyedByTheByteOffsetOfTheirLine() throws Exception {
+        String csv = "Lovelace,Ada\r\n\r\n   \nHopper,Grace\r\nOnly\nTuring,Alan";
+        Path input = Files.writeString(directory.resolve("names.csv"), csv);
+
+        Map<Long, String> rows = ingest(input, 1);
+
+        assertEquals(Map.of(
+                0L, "Lovelace|Ada",
+                (long) csv.indexOf("Hopper"), "Hopper|Grace",
+                (long) csv.indexOf("Turing"), "Turing|Alan"), rows);
+    }
+
+    @Test
+    void emptyFileHasNoRows() throws Exception {
+        Path input = Files.writeString(directory.resolve("names.csv"), "");
+
+        assertTrue(ingest(input, 4).isEmpty());
+    }
+
+    private static Map<Long, String> ingest(Path input, int parallelism) throws Exception {
+        Map<Long, String> rows = new ConcurrentSkipListMap<>();
+        long delivered = new CsvIngestionEngine(parallelism, CHUNK_BYTES)
+                .ingest(input, (offset, request) -> rows.put(offset, row(request)));
+        assertEquals(delivered, rows.size());
+        return rows;
+    }
+
+    private static String row(GeneratePDFRequest request) {
+        return request.getLastName() + "|" + request.getFirstName();
+    }
+
+    /**
+     * Rows as the Commons CSV loader the engine replaced read them.
+     */
+    private static List<String> baseline(Path input) throws Exception {
+        List<String> rows = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            var csvFormat = CSVFormat.DEFAULT.builder()
+                    .setIgnoreEmptyLines(true)
+                    .setTrim(true)
+                    .build();
+            for (CSVRecord record : csvFormat.parse(reader)) {
+                if (record.size() >= 2) {
+                    String lastName = record.get(0).trim();
+                    String firstName = record.get(1).trim();
+                    if (!lastName.isEmpty() && !firstName.isEmpty()) {
+                        rows.add(lastName + "|" + firstName);
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+}
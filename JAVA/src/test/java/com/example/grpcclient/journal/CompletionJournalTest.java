@@ -0,0 +1,119 @@
+package com.example.grpcclient.journal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompletionJournalTest {
+
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    @TempDir
+    Path directory;
+    private Path input;
+    private Path journal;
+
+    @BeforeEach
+    void writeInput() throws Exception {
+        input = Files.writeString(directory.resolve("input.csv"), "first,last\nAda,Lovelace\n");
+        journal = directory.resolve("run.journal");
+    }
+
+    @Test
+    void reopenedJournalRecoversCommittedRows() throws Exception {
+        var barrierCalls = new AtomicInteger();
+        try (var completions = CompletionJournal.open(journal, input, NEVER, 100, barrierCalls::incrementAndGet)) {
+            assertEquals(0, completions.recoveredRows());
+            completions.record(30);
+            completions.record(10);
+            completions.record(20);
+        }
+        // Closing commits the pending rows, behind the output barrier
+        assertEquals(1, barrierCalls.get());
+
+        try (var completions = CompletionJournal.open(journal, input, NEVER, 100, () -> { })) {
+            assertEquals(3, completions.recoveredRows());
+            assertTrue(completions.isCompleted(10));
+            assertTrue(completions.isCompleted(20));
+            assertTrue(completions.isCompleted(30));
+            assertFalse(completions.isCompleted(25));
+        }
+    }
+
+    @Test
+    void fullBatchCommitsWithoutWaitingForTheInterval() throws Exception {
+        try (var completions = CompletionJournal.open(journal, input, NEVER, 2, () -> { })) {
+            completions.record(10);
+            completions.record(20);
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (completions.committedRows() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, completions.committedRows());
+        }
+    }
+
+    @Test
+    void tornTrailingRecordIsDropped() throws Exception {
+        try (var completions = CompletionJournal.open(journal, input, NEVER, 100, () -> { })) {
+            completions.record(10);
+            completions.record(20);
+        }
+        long intact = Files.size(journal);
+        try (var channel = FileChannel.open(journal, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            // Half of a third record, as a crash mid-append would leave
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0}));
+        }
+
+        try (var completions = CompletionJournal.open(journal, input, NEVER, 100, () -> { })) {
+            assertEquals(2, completions.recoveredRows());
+            assertEquals(intact, Files.size(journal));
+            completions.record(30);
+        }
+        try (var completions = CompletionJournal.open(journal, input, NEVER, 100, () -> { })) {
+            assertEquals(3, completions.recoveredRows());
+            assertTrue(completions.isCompleted(30));
+        }
+    }
+
+    @Test
+    void journalForADifferentInputIsDiscarded() throws Exception {
+        try (var completions = CompletionJournal.open(journal, input, NEVER, 100, () -> { })) {
+            completions.record(10);
+        }
+        Files.setLastModifiedTime(input, FileTime.fromMillis(Files.getLastModifiedTime(input).toMillis() + 60_000));
+
+        try (var completions = CompletionJournal.open(journal, input, NEVER, 100, () -> { })) {
+            assertEquals(0, completions.recoveredRows());
+            assertFalse(completions.isCompleted(10));
+        }
+    }
+
+    @Test
+    void journalForAResizedInputIsDiscarded() throws Exception {
+        try (var completions = CompletionJournal.open(journal, input, NEVER, 100, () -> { })) {
+            completions.record(10);
+        }
+        FileTime modified = Files.getLastModifiedTime(input);
+        Files.writeString(input, "Grace,Hopper\n", StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(input, modified);
+
+        try (var completions = CompletionJournal.open(journal, input, NEVER, 100, () -> { })) {
+            assertEquals(0, completions.recoveredRows());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.grpcclient.output;
+
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PackFileSinkTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackEveryPdfAcrossSegmentRollover() throws Exception {
+        try (var sink = new PackFileSink(directory, 16)) {
+            sink.write("a", pdf("aaaaaaaa"));
+            sink.write("b", pdf("bbbbbbbb"));
+            // Segment 0 is full, so this one rolls over and seals it
+            sink.write("c", pdf("cccccccc"));
+            // Bigger than a whole segment, so it gets one of its own
+            sink.write("d", pdf("dddddddddddddddddddd"));
+            sink.write("e", pdf("ee"));
+        }
+
+        var reader = new PackReader(directory);
+        assertEquals(5, reader.size());
+        assertEquals(List.of(0, 0, 1, 2, 3), reader.entries().stream().map(PackReader.Entry::segment).toList());
+        assertEquals(pdf("aaaaaaaa"), content(reader, "a"));
+        assertEquals(pdf("bbbbbbbb"), content(reader, "b"));
+        assertEquals(pdf("cccccccc"), content(reader, "c"));
+        assertEquals(pdf("dddddddddddddddddddd"), content(reader, "d"));
+        assertEquals(pdf("ee"), content(reader, "e"));
+        assertEquals(16, Files.size(PackFormat.dataFile(directory, 0)));
+    }
+
+    @Test
+    void sealedSegmentIsCompleteBeforeTheSinkCloses() throws Exception {
+        try (var sink = new PackFileSink(directory, 16)) {
+            sink.write("a", pdf("aaaaaaaa"));
+            sink.write("b", pdf("bbbbbbbb"));
+            sink.write("c", pdf("cccccccc"));
+
+            var reader = new PackReader(directory);
+            assertEquals(pdf("aaaaaaaa"), content(reader, "a"));
+            assertEquals(pdf("bbbbbbbb"), content(reader, "b"));
+        }
+    }
+
+    @Test
+    void reopenedSinkAppendsNewSegmentsAndKeepsRepeatedKeys() throws Exception {
+        try (var sink = new PackFileSink(directory, 1024)) {
+            sink.write("a", pdf("first"));
+        }
+        try (var sink = new PackFileSink(directory, 1024)) {
+            sink.write("a", pdf("second"));
+        }
+
+        var reader = new PackReader(directory);
+        List<PackReader.Entry> matches = reader.find("a");
+        assertEquals(2, matches.size());
+        assertEquals(pdf("first"), ByteString.copyFrom(reader.read(matches.get(0))));
+        assertEquals(pdf("second"), ByteString.copyFrom(reader.read(matches.get(1))));
+        assertEquals(1, matches.get(1).segment());
+    }
+
+    @Test
+    void tornTrailingIndexRecordIsDropped() throws Exception {
+        try (var sink = new PackFileSink(directory, 1024)) {
+            sink.write("first", pdf("one"));
+            sink.write("second", pdf("two"));
+        }
+        Path index = PackFormat.indexFile(directory, 0);
+        try (var channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            // Cut into the last record's key, as a crash mid-append would
+            channel.truncate(channel.size() - 2);
+        }
+
+        var reader = new PackReader(directory);
+        assertEquals(1, reader.size());
+        assertEquals(pdf("one"), content(reader, "first"));
+        assertTrue(reader.find("second").isEmpty());
+    }
+
+    @Test
+    void indexCutInsideARecordHeaderIsDroppedToo() throws Exception {
+        try (var sink = new PackFileSink(directory, 1024)) {
+            sink.write("first", pdf("one"));
+            sink.write("second", pdf("two"));
+        }
+        Path index = PackFormat.indexFile(directory, 0);
+        long firstRecord = PackFormat.ENTRY_HEADER_BYTES + "first".length();
+        try (var channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            channel.truncate(firstRecord + PackFormat.ENTRY_HEADER_BYTES - 1);
+        }
+
+        var reader = new PackReader(directory);
+        assertEquals(1, reader.size());
+        assertFalse(reader.read("second").isPresent());
+    }
+
+    private static ByteString pdf(String content) {
+        return ByteString.copyFrom(content, StandardCharsets.US_ASCII);
+    }
+
+    private static ByteString content(PackReader reader, String key) {
+        return ByteString.copyFrom(reader.read(key).orElseThrow());
+    }
+}
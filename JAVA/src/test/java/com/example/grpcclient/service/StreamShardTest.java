@@ -0,0 +1,201 @@
+package com.example.grpcclient.service;
+
+import com.example.grpcclient.proto.GeneratePDFReply;
+import com.example.grpcclient.proto.GeneratePDFRequest;
+import com.example.grpcclient.util.Blocking;
+import io.grpc.stub.ClientCallStreamObserver;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamShardTest {
+
+    @Test
+    void replyMatchesTheRowWithItsEchoedRequestId() {
+        var shard = attached(new RecordingCall());
+        shard.send(row("a"), 1);
+        shard.send(row("b"), 2);
+        shard.send(row("c"), 3);
+
+        assertEquals(row("b"), shard.recordReceived(reply(2)).row());
+        assertEquals(2, shard.unanswered());
+        assertEquals(1, shard.received());
+    }
+
+    @Test
+    void replyWithoutAnIdMatchesTheOldestUnansweredRow() {
+        var shard = attached(new RecordingCall());
+        shard.send(row("a"), 1);
+        shard.send(row("b"), 2);
+        shard.send(row("c"), 3);
+        shard.recordReceived(reply(2));
+
+        assertEquals(row("a"), shard.recordReceived(reply(0)).row());
+        assertEquals(row("c"), shard.recordReceived(reply(0)).row());
+        assertNull(shard.recordReceived(reply(0)));
+    }
+
+    @Test
+    void replyForAnUnknownIdMatchesNothing() {
+        var shard = attached(new RecordingCall());
+        shard.send(row("a"), 1);
+
+        assertNull(shard.recordReceived(reply(7)));
+        assertEquals(1, shard.unanswered());
+    }
+
+    @Test
+    void requestsAreStampedWithTheirId() {
+        var call = new RecordingCall();
+        var shard = attached(call);
+        shard.send(row("a"), 41);
+
+        assertEquals(List.of(41L), call.sentIds());
+        assertEquals("a", call.sent.get(0).getLastName());
+    }
+
+    @Test
+    void reopenResendsOnlyUnansweredRowsInTheirOriginalOrder() {
+        var failed = new RecordingCall();
+        var shard = attached(failed);
+        shard.send(row("a"), 1);
+        shard.send(row("b"), 2);
+        shard.send(row("c"), 3);
+        shard.recordReceived(reply(2));
+
+        var replacement = new RecordingCall();
+        assertEquals(2, shard.reopen(() -> shard.attach(replacement)));
+
+        assertEquals(List.of(1L, 2L, 3L), failed.sentIds());
+        assertEquals(List.of(1L, 3L), replacement.sentIds());
+        assertFalse(replacement.completed);
+        // The resent rows are still answered by id on the new call
+        assertEquals(row("c"), shard.recordReceived(reply(3)).row());
+        assertEquals(row("a"), shard.recordReceived(reply(0)).row());
+    }
+
+    @Test
+    void reopenAfterHalfCloseAlsoHalfClosesTheNewCall() {
+        var failed = new RecordingCall();
+        var shard = attached(failed);
+        shard.send(row("a"), 1);
+        shard.halfClose();
+        assertTrue(failed.completed);
+
+        var replacement = new RecordingCall();
+        shard.reopen(() -> shard.attach(replacement));
+
+        assertEquals(List.of(1L), replacement.sentIds());
+        assertTrue(replacement.completed);
+    }
+
+    @Test
+    void replyResetsTheConsecutiveFailureCount() {
+        var shard = attached(new RecordingCall());
+        shard.send(row("a"), 1);
+        assertEquals(1, shard.recordFailure());
+        assertEquals(2, shard.recordFailure());
+
+        shard.recordReceived(reply(1));
+        assertEquals(1, shard.recordFailure());
+    }
+
+    @Test
+    void awaitReadyBlocksUntilTheCallBecomesReady() throws Exception {
+        var call = new RecordingCall();
+        call.ready = false;
+        var shard = attached(call);
+
+        var sender = Blocking.start(shard::awaitReady).awaitBlocked();
+        call.ready = true;
+        call.onReady.run();
+        assertTrue(sender.result());
+    }
+
+    @Test
+    void awaitReadyGivesUpOnceTheShardHasFinished() throws Exception {
+        var call = new RecordingCall();
+        call.ready = false;
+        var shard = attached(call);
+
+        var sender = Blocking.start(shard::awaitReady).awaitBlocked();
+        shard.markCompleted();
+        assertFalse(sender.result());
+    }
+
+    private static StreamShard attached(RecordingCall call) {
+        // The stub is only used by whoever opens the calls, which these tests do themselves
+        var shard = new StreamShard(0, null);
+        shard.attach(call);
+        return shard;
+    }
+
+    private static InputRow row(String lastName) {
+        return new InputRow(InputRow.NO_OFFSET,
+                GeneratePDFRequest.newBuilder().setLastName(lastName).setFirstName("First").build());
+    }
+
+    private static GeneratePDFReply reply(long requestId) {
+        return GeneratePDFReply.newBuilder().setRequestId(requestId).build();
+    }
+
+    /**
+     * Request side of a call that records what the shard sends on it.
+     */
+    private static final class RecordingCall extends ClientCallStreamObserver<GeneratePDFRequest> {
+        final List<GeneratePDFRequest> sent = new CopyOnWriteArrayList<>();
+        volatile boolean ready = true;
+        volatile boolean completed;
+        volatile Runnable onReady;
+
+        List<Long> sentIds() {
+            return sent.stream().map(GeneratePDFRequest::getRequestId).toList();
+        }
+
+        @Override
+        public void onNext(GeneratePDFRequest request) {
+            sent.add(request);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onCompleted() {
+            completed = true;
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {
+            this.onReady = onReadyHandler;
+        }
+
+        @Override
+        public void cancel(String message, Throwable cause) {
+        }
+
+        @Override
+        public void request(int count) {
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.grpcclient.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long ONE_MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void acquireBlocksAtTheLimitUntilACallFinishes() throws Exception {
+        var limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        limiter.acquire();
+
+        var waiter = Blocking.start(() -> {
+            limiter.acquire();
+            return null;
+        }).awaitBlocked();
+        limiter.onSuccess(ONE_MS);
+        waiter.result();
+        assertEquals(1, limiter.inFlight());
+    }
+
+    @Test
+    void droppedCallWakesAWaiter() throws Exception {
+        var limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        limiter.acquire();
+
+        var waiter = Blocking.start(() -> {
+            limiter.acquire();
+            return null;
+        }).awaitBlocked();
+        limiter.onDropped();
+        waiter.result();
+    }
+
+    @Test
+    void limitGrowsWhileFullyUsedAtSteadyLatency() throws Exception {
+        var limiter = new AdaptiveConcurrencyLimiter(2, 1, 100);
+        for (int round = 0; round < 20; round++) {
+            int permits = limiter.limit();
+            for (int i = 0; i < permits; i++) {
+                limiter.acquire();
+            }
+            for (int i = 0; i < permits; i++) {
+                limiter.onSuccess(ONE_MS);
+            }
+        }
+        assertTrue(limiter.limit() > 10, "limit " + limiter.limit());
+    }
+
+    @Test
+    void idleLimitDoesNotGrow() throws Exception {
+        var limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire();
+            limiter.onSuccess(ONE_MS);
+        }
+        assertEquals(10, limiter.limit());
+    }
+
+    @Test
+    void risingLatencyShrinksTheLimit() throws Exception {
+        var limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+        limiter.acquire();
+        limiter.onSuccess(ONE_MS);
+
+        limiter.acquire();
+        limiter.onSuccess(100 * ONE_MS);
+        assertEquals(9, limiter.limit());
+    }
+
+    @Test
+    void failuresShrinkTheLimitAtMostOncePerRoundTrip() throws Exception {
+        var limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+        limiter.acquire();
+        limiter.onSuccess(TimeUnit.SECONDS.toNanos(10));
+
+        limiter.acquire();
+        limiter.onDropped();
+        assertEquals(9, limiter.limit());
+        // Same burst of failures, well within one 10 s round trip
+        limiter.acquire();
+        limiter.onDropped();
+        assertEquals(9, limiter.limit());
+    }
+
+    @Test
+    void limitStaysWithinItsBounds() throws Exception {
+        var limiter = new AdaptiveConcurrencyLimiter(50, 2, 3);
+        assertEquals(3, limiter.limit());
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire();
+            limiter.onDropped();
+        }
+        assertEquals(2, limiter.limit());
+    }
+}
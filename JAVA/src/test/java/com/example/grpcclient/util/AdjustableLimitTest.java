@@ -0,0 +1,45 @@
+package com.example.grpcclient.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class AdjustableLimitTest {
+
+    @Test
+    void raisingTheLimitWakesAWaiter() throws Exception {
+        var limit = new AdjustableLimit(1);
+        limit.acquire();
+
+        var waiter = Blocking.start(() -> {
+            limit.acquire();
+            return null;
+        }).awaitBlocked();
+        limit.setLimit(2);
+        waiter.result();
+    }
+
+    @Test
+    void loweringTheLimitLetsHoldersFinishAndHoldsNewAcquires() throws Exception {
+        var limit = new AdjustableLimit(3);
+        limit.acquire();
+        limit.acquire();
+        limit.acquire();
+        limit.setLimit(1);
+        assertEquals(1, limit.limit());
+
+        var waiter = Blocking.start(() -> {
+            limit.acquire();
+            return null;
+        }).awaitBlocked();
+        limit.release();
+        limit.release();
+        // One still held at a limit of one
+        waiter.awaitBlocked();
+        assertFalse(waiter.isDone());
+
+        limit.release();
+        waiter.result();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.grpcclient.util;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs a blocking call on its own thread so a test can check that it blocks and what wakes it.
+ */
+public final class Blocking<V> {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final FutureTask<V> task;
+    private final Thread thread;
+
+    private Blocking(Callable<V> call) {
+        this.task = new FutureTask<>(call);
+        this.thread = new Thread(task, "blocking-call");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static <V> Blocking<V> start(Callable<V> call) {
+        return new Blocking<>(call);
+    }
+
+    /**
+     * Waits until the call is parked, and fails if it finishes instead.
+     */
+    public Blocking<V> awaitBlocked() throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (thread.getState() != Thread.State.WAITING) {
+            if (task.isDone()) {
+                fail("Call finished instead of blocking");
+            }
+            if (System.nanoTime() > deadline) {
+                fail("Call neither blocked nor finished");
+            }
+            Thread.sleep(1);
+        }
+        return this;
+    }
+
+    public boolean isDone() {
+        return task.isDone();
+    }
+
+    /**
+     * The call's result once it has been woken, rethrowing what it threw.
+     */
+    public V result() throws Exception {
+        thread.join(TIMEOUT.toMillis());
+        if (!task.isDone()) {
+            fail("Call is still blocked");
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.grpcclient.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ByteBudgetQueueTest {
+
+    @Test
+    void putWaitsUntilTheConsumerReleasesBytes() throws Exception {
+        var queue = new ByteBudgetQueue<String>(10, String::length);
+        queue.put("0123456789");
+
+        var producer = Blocking.start(() -> {
+            queue.put("next");
+            return null;
+        }).awaitBlocked();
+        String taken = queue.take();
+        // Taken but still being worked on: its bytes are still accounted
+        producer.awaitBlocked();
+        assertFalse(producer.isDone());
+
+        queue.release(taken);
+        producer.result();
+        assertEquals("next", queue.take());
+        assertEquals(4, queue.usedBytes());
+    }
+
+    @Test
+    void addMayOvershootTheBudget() {
+        var queue = new ByteBudgetQueue<String>(10, String::length);
+        queue.add("01234");
+        assertTrue(queue.hasCapacity());
+
+        queue.add("0123456789");
+        assertEquals(15, queue.usedBytes());
+        assertFalse(queue.hasCapacity());
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    void raisingTheBudgetWakesAWaiter() throws Exception {
+        var queue = new ByteBudgetQueue<String>(10, String::length);
+        queue.add("0123456789");
+
+        var waiter = Blocking.start(() -> {
+            queue.awaitCapacity();
+            return null;
+        }).awaitBlocked();
+        queue.setMaxBytes(20);
+        waiter.result();
+    }
+
+    @Test
+    void loweringTheBudgetHoldsProducersUntilBelowIt() throws Exception {
+        var queue = new ByteBudgetQueue<String>(20, String::length);
+        queue.add("0123456789");
+        queue.setMaxBytes(5);
+
+        var producer = Blocking.start(() -> {
+            queue.put("next");
+            return null;
+        }).awaitBlocked();
+        queue.release(queue.take());
+        producer.result();
+    }
+
+    @Test
+    void takeWaitsForAnItem() throws Exception {
+        var queue = new ByteBudgetQueue<String>(10, String::length);
+        var consumer = Blocking.start(queue::take).awaitBlocked();
+        queue.add("pdf");
+        assertEquals("pdf", consumer.result());
+    }
+
+    @Test
+    void budgetMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new ByteBudgetQueue<String>(0, String::length));
+        var queue = new ByteBudgetQueue<String>(10, String::length);
+        assertThrows(IllegalArgumentException.class, () -> queue.setMaxBytes(-1));
+    }
+}
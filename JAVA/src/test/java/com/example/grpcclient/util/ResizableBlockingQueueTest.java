@@ -0,0 +1,69 @@
+package com.example.grpcclient.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ResizableBlockingQueueTest {
+
+    @Test
+    void growingWakesABlockedProducer() throws Exception {
+        var queue = new ResizableBlockingQueue<Integer>(1);
+        queue.put(1);
+
+        var producer = Blocking.start(() -> {
+            queue.put(2);
+            return null;
+        }).awaitBlocked();
+        queue.setCapacity(2);
+        producer.result();
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    void shrinkingKeepsItemsAndHoldsProducersUntilDrainedBelowTheNewCapacity() throws Exception {
+        var queue = new ResizableBlockingQueue<Integer>(3);
+        queue.put(1);
+        queue.put(2);
+        queue.put(3);
+        queue.setCapacity(1);
+        assertEquals(3, queue.size());
+
+        var producer = Blocking.start(() -> {
+            queue.put(4);
+            return null;
+        }).awaitBlocked();
+        assertEquals(1, queue.take());
+        assertEquals(2, queue.take());
+        // One item left at capacity one: still full
+        producer.awaitBlocked();
+        assertFalse(producer.isDone());
+
+        assertEquals(3, queue.take());
+        producer.result();
+        assertEquals(4, queue.take());
+    }
+
+    @Test
+    void takeWaitsForAnItem() throws Exception {
+        var queue = new ResizableBlockingQueue<Integer>(1);
+        var consumer = Blocking.start(queue::take).awaitBlocked();
+        queue.put(7);
+        assertEquals(7, consumer.result());
+    }
+
+    @Test
+    void clearWakesABlockedProducer() throws Exception {
+        var queue = new ResizableBlockingQueue<Integer>(1);
+        queue.put(1);
+
+        var producer = Blocking.start(() -> {
+            queue.put(2);
+            return null;
+        }).awaitBlocked();
+        queue.clear();
+        producer.result();
+        assertEquals(2, queue.take());
+    }
+}
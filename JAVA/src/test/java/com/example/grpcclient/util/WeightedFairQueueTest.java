@@ -0,0 +1,85 @@
+package com.example.grpcclient.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WeightedFairQueueTest {
+
+    @Test
+    void backloggedFlowsAreServedInProportionToWeight() throws Exception {
+        var queue = new WeightedFairQueue<String>();
+        var heavy = queue.addFlow(2, 100);
+        var light = queue.addFlow(1, 100);
+        for (int i = 0; i < 30; i++) {
+            heavy.put("heavy", 1);
+            light.put("light", 1);
+        }
+
+        int heavyTaken = 0;
+        for (int i = 0; i < 30; i++) {
+            if (queue.take().equals("heavy")) {
+                heavyTaken++;
+            }
+        }
+        assertEquals(20, heavyTaken);
+        assertEquals(30, queue.size());
+    }
+
+    @Test
+    void costCountsAgainstTheFlowsShare() throws Exception {
+        var queue = new WeightedFairQueue<String>();
+        var large = queue.addFlow(1, 100);
+        var small = queue.addFlow(1, 100);
+        for (int i = 0; i < 10; i++) {
+            large.put("large", 4);
+            small.put("small", 1);
+        }
+
+        List<String> taken = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            taken.add(queue.take());
+        }
+        // Equal weights share cost, not items: the large item is due when the fourth small one is
+        assertEquals(List.of("small", "small", "small", "large", "small"), taken);
+    }
+
+    @Test
+    void takeFreesRoomForABlockedProducer() throws Exception {
+        var queue = new WeightedFairQueue<Integer>();
+        var flow = queue.addFlow(1, 1);
+        flow.put(1, 1);
+
+        var producer = Blocking.start(() -> {
+            flow.put(2, 1);
+            return null;
+        }).awaitBlocked();
+        assertEquals(1, queue.take());
+        producer.result();
+        assertEquals(2, queue.take());
+    }
+
+    @Test
+    void removeFlowReturnsQueuedItemsAndFailsBlockedProducers() throws Exception {
+        var queue = new WeightedFairQueue<Integer>();
+        var removed = queue.addFlow(1, 2);
+        var kept = queue.addFlow(1, 2);
+        removed.put(1, 1);
+        removed.put(2, 1);
+        kept.put(3, 1);
+
+        var producer = Blocking.start(() -> {
+            removed.put(4, 1);
+            return null;
+        }).awaitBlocked();
+        assertEquals(List.of(1, 2), queue.removeFlow(removed));
+        assertThrows(IllegalStateException.class, producer::result);
+
+        assertEquals(1, queue.size());
+        assertEquals(3, queue.take());
+    }
+}